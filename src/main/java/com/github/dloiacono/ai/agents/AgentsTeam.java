@@ -3,7 +3,11 @@ package com.github.dloiacono.ai.agents;
 import com.github.dloiacono.ai.agents.engineering.Architect;
 import com.github.dloiacono.ai.agents.engineering.Developer;
 import com.github.dloiacono.ai.agents.product.Analyst;
+import com.github.dloiacono.ai.agents.tools.FileContentCache;
 import com.github.dloiacono.ai.agents.tools.FileSystemTool;
+import com.github.dloiacono.ai.agents.tools.BuildResultCache;
+import com.github.dloiacono.ai.agents.tools.CompileCheckTool;
+import com.github.dloiacono.ai.agents.tools.MavenBuildStats;
 import com.github.dloiacono.ai.agents.tools.MavenTool;
 import com.github.dloiacono.ai.agents.memory.AgentChatMemoryFactory;
 import com.github.dloiacono.ai.agents.memory.PersistentChatMemoryStore;
@@ -12,12 +16,25 @@ import dev.langchain4j.agentic.AgenticServices;
 import dev.langchain4j.agentic.scope.ResultWithAgenticScope;
 import dev.langchain4j.agentic.supervisor.SupervisorContextStrategy;
 import dev.langchain4j.agentic.supervisor.SupervisorResponseStrategy;
+import dev.langchain4j.memory.ChatMemory;
+import dev.langchain4j.memory.chat.ChatMemoryProvider;
 import dev.langchain4j.model.chat.ChatModel;
+import util.AnthropicPromptCache;
+import util.CachingChatModel;
 import util.ChatModelProvider;
+import util.GovernedChatModel;
+import util.IncrementalSummarizer;
+import util.ScriptedChatModel;
+import util.StreamingChatModelAdapter;
+import util.TeamMetrics;
 import util.log.CustomLogging;
 import util.log.LogLevels;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.function.Function;
 
 public class AgentsTeam {
 
@@ -25,9 +42,6 @@ public class AgentsTeam {
         CustomLogging.setLevel(LogLevels.PRETTY, 200);
     }
 
-    private static final ChatModel CHAT_MODEL = ChatModelProvider
-            .createDefaultChatModel();
-
     /**
      * In this example we build a similar supervisor as in _7a_Supervisor_Orchestration,
      * but we explore a number of extra features of the Supervisor:
@@ -36,33 +50,96 @@ public class AgentsTeam {
      * - output strategies,
      * - call chain observation,
      * - context evolution inspection
+     * Run with --parallel (or AGENTS_PARALLEL=true) to develop independent work packages
+     * concurrently with {@link ParallelTeam} instead of delegating through the supervisor.
+     * Set AGENTS_LLM_CACHE to a comma separated list of agents (or "all") to replay their
+     * responses to identical requests from {@link CachingChatModel}, and AGENTS_RECORD_SCRIPT to a
+     * file to record the conversation as a script that {@link ScriptedChatModel} replays offline,
+     * which AGENTS_REPLAY_SCRIPT does instead of calling the models.
+     * Run with --streaming (or AGENTS_STREAMING=true) to stream the model responses, which shows
+     * them live and measures the time to first token per agent.
+     * Each role uses its own model, see {@link ChatModelProvider.Role} for the defaults and the
+     * AGENTS_MODEL_, AGENTS_MAX_TOKENS_ and AGENTS_TIMEOUT_SECONDS_ overrides.
+     * AGENTS_REQUEST replaces the example request, and AGENTS_RESULT_FILE receives the final
+     * result; {@link BatchRunner} runs a queue of requests through the team that way.
      */
     public static void main(String[] args) throws IOException {
+        String request = System.getenv("AGENTS_REQUEST");
+        if (request == null || request.isBlank()) {
+            request = "Create a REST API using Quarkus that perform simple calculations between two numbers";
+        }
+        boolean streaming = Arrays.asList(args).contains("--streaming") || "true".equalsIgnoreCase(System.getenv("AGENTS_STREAMING"));
+        ChatModelProvider.ModelRouter router = new ChatModelProvider.ModelRouter(streaming);
+        String recordScript = System.getenv("AGENTS_RECORD_SCRIPT");
+        String replayScript = System.getenv("AGENTS_REPLAY_SCRIPT");
+        ScriptedChatModel replay = replayScript == null || replayScript.isBlank() ? null : ScriptedChatModel.load(Paths.get(replayScript));
+        Function<String, ChatModel> modelForAgent = agentName -> {
+            ChatModel model = replay != null ? replay : router.forAgent(agentName);
+            if (recordScript != null && !recordScript.isBlank()) {
+                model = ScriptedChatModel.recorder(model, Paths.get(recordScript));
+            }
+            return ChatModelProvider.forAgent(model, agentName);
+        };
+
+        if (Arrays.asList(args).contains("--parallel") || "true".equalsIgnoreCase(System.getenv("AGENTS_PARALLEL"))) {
+            long start = System.nanoTime();
+            String report = new ParallelTeam(modelForAgent).run(request);
+            long end = System.nanoTime();
+
+            System.out.println("=== Parallel Team finished in " + ((end - start) / 1_000_000_000.0) + "s ===");
+            System.out.println(report);
+            writeResult(report);
+            printStats();
+            return;
+        }
+
+        TeamSupervisor teamSupervisor = createTeam(modelForAgent);
+
+        // 4. Invoke supervisor
+        long start = System.nanoTime();
+        ResultWithAgenticScope<String> decision = teamSupervisor.invoke(request, "Successful build and test of the solution is a must.");
+        long end = System.nanoTime();
 
+        System.out.println("=== Team Supervisor finished in " + ((end - start) / 1_000_000_000.0) + "s ===");
+        System.out.println(decision.result());
+        writeResult(decision.result());
+        printStats();
+
+        // Print collected contexts
+        System.out.println("\n=== Context as Conversation ===");
+        System.out.println(decision.agenticScope().contextAsConversation()); // will work in next release
+
+    }
 
+    /**
+     * Builds the supervised team; the function returns the chat model of each agent by name
+     * (analyst, architect, developer and supervisor, which also scores and summarizes)
+     */
+    static TeamSupervisor createTeam(Function<String, ChatModel> modelForAgent) {
         // 1. Define subagents with persistent chat memory and RAG capabilities
         // Using individual memory stores for each agent to avoid conflicts
         Analyst analyst = AgenticServices.agentBuilder(Analyst.class)
-                .chatModel(CHAT_MODEL)
-                .chatMemory(AgentChatMemoryFactory.createAnalystMemory())
-                .tools(new FileSystemTool(), new RAGTool())
+                .chatModel(modelForAgent.apply("analyst"))
+                .chatMemoryProvider(sharedMemory(AgentChatMemoryFactory.createAnalystMemory()))
+                .toolProvider(TeamMetrics.tools("analyst", new FileSystemTool(), new RAGTool()))
                 .build();
         Architect architect = AgenticServices.agentBuilder(Architect.class)
-                .chatModel(CHAT_MODEL)
-                .chatMemory(AgentChatMemoryFactory.createArchitectMemory())
-                .tools(new FileSystemTool(), new RAGTool())
+                .chatModel(modelForAgent.apply("architect"))
+                .chatMemoryProvider(sharedMemory(AgentChatMemoryFactory.createArchitectMemory()))
+                .toolProvider(TeamMetrics.tools("architect", new FileSystemTool(), new RAGTool()))
                 .build();
         Developer developer = AgenticServices.agentBuilder(Developer.class)
-                .chatModel(CHAT_MODEL)
-                .chatMemory(AgentChatMemoryFactory.createDeveloperMemory())
-                .tools(new FileSystemTool(), new RAGTool(), new MavenTool())
+                .chatModel(modelForAgent.apply("developer"))
+                .chatMemoryProvider(sharedMemory(AgentChatMemoryFactory.createDeveloperMemory()))
+                .toolProvider(TeamMetrics.tools("developer", new FileSystemTool(), new RAGTool(), new MavenTool(), new CompileCheckTool()))
                 .build();
 
         // 2. Build supervisor
 
-        TeamSupervisor teamSupervisor = AgenticServices
+        return AgenticServices
                 .supervisorBuilder(TeamSupervisor.class)
-                .chatModel(CHAT_MODEL)
+                // Summaries of the sub-agent conversation are reused and extended instead of recomputed every turn
+                .chatModel(new IncrementalSummarizer(modelForAgent.apply("supervisor")))
                 .subAgents(analyst, architect, developer)
                 .contextGenerationStrategy(SupervisorContextStrategy.CHAT_MEMORY_AND_SUMMARIZATION)
                 // depending on what your supervisor needs to know about what the sub-agents have been doing,
@@ -71,20 +148,39 @@ public class AgentsTeam {
                 // an output function here would override the response strategy
                 .supervisorContext("Policy: Always analyze the request, then delegate to the appropriate sub-agent, iterate if needed.")
                 .build();
+    }
 
-        String request = "Create a REST API using Quarkus that perform simple calculations between two numbers";
-
-        // 4. Invoke supervisor
-        long start = System.nanoTime();
-        ResultWithAgenticScope<String> decision = teamSupervisor.invoke(request, "Successful build and test of the solution is a must.");
-        long end = System.nanoTime();
-
-        System.out.println("=== Team Supervisor finished in " + ((end - start) / 1_000_000_000.0) + "s ===");
-        System.out.println(decision.result());
+    private static void writeResult(String result) {
+        String resultFile = System.getenv("AGENTS_RESULT_FILE");
+        if (resultFile == null || resultFile.isBlank()) {
+            return;
+        }
+        try {
+            Files.writeString(Paths.get(resultFile), result == null ? "" : result);
+        } catch (IOException e) {
+            System.err.println("Warning: Failed to write the result to " + resultFile + ": " + e.getMessage());
+        }
+    }
 
-        // Print collected contexts
-        System.out.println("\n=== Context as Conversation ===");
-        System.out.println(decision.agenticScope().contextAsConversation()); // will work in next release
+    // The supervisor looks sub-agent memories up by its scope id, which a plain chatMemory(...) does not support
+    private static ChatMemoryProvider sharedMemory(ChatMemory memory) {
+        return memoryId -> memory;
+    }
 
+    static void printStats() {
+        System.out.println("=== File content cache: " + FileContentCache.stats() + " ===");
+        System.out.println("=== Maven build latency: " + MavenBuildStats.summary() + " ===");
+        System.out.println("=== Maven build cache: " + BuildResultCache.stats() + " ===");
+        System.out.println("=== LLM response cache: " + CachingChatModel.stats() + " ===");
+        System.out.println("=== Anthropic prompt cache: " + AnthropicPromptCache.stats() + " ===");
+        System.out.println("=== Streaming latency: " + StreamingChatModelAdapter.stats() + " ===");
+        System.out.println("=== Model rate limit governor: " + GovernedChatModel.stats() + " ===");
+        System.out.println("=== Supervisor context summaries: " + IncrementalSummarizer.stats() + " ===");
+        System.out.print(TeamMetrics.snapshot());
+        try {
+            System.out.println("=== Metrics report written to " + TeamMetrics.writeReport() + " ===");
+        } catch (IOException e) {
+            System.err.println("Warning: Failed to write the metrics report: " + e.getMessage());
+        }
     }
 }
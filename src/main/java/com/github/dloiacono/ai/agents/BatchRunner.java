@@ -0,0 +1,350 @@
+package com.github.dloiacono.ai.agents;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.dloiacono.ai.agents.tools.BuildExecutor;
+import util.ChatModelProvider;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Runs a queue of requests through {@link AgentsTeam}, several at a time.
+ * Usage: BatchRunner <requests.jsonl | queue directory> [--parallelism N] [--out directory] [--parallel] [--streaming]
+ * A JSONL file holds one job per line, {"id": "...", "request": "..."}, the id defaulting to the line
+ * number; a queue directory holds one job per file, either such a JSON object or a .txt/.md file
+ * whose content is the request and whose name is the id, taken in name order.
+ * Each job runs as its own AgentsTeam process in out/jobs/<id>, so it gets its own generated-project
+ * workspace with its own memory, RAG store and caches, and its memory ids are prefixed with the job id.
+ * Its output goes to out/jobs/<id>/job.log, and a line with its status, result, timing and token
+ * counts is appended to out/results.jsonl. Jobs that already have a succeeded line there are skipped,
+ * so an interrupted batch resumes where it stopped and failed jobs are retried.
+ * The model rate limits (see util.GovernedChatModel) are per process, so the request and token
+ * budgets are divided between the parallel jobs. Settings: AGENTS_BATCH_PARALLELISM (2) and
+ * AGENTS_BATCH_JOB_TIMEOUT_MINUTES (120).
+ */
+public class BatchRunner {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final String SUCCEEDED = "succeeded";
+    private static final String FAILED = "failed";
+
+    /**
+     * A request to run and the id its workspace and result are stored under
+     */
+    static class Job {
+        private final String id;
+        private final String request;
+
+        Job(String id, String request) {
+            this.id = id;
+            this.request = request;
+        }
+
+        public String getId() { return id; }
+        public String getRequest() { return request; }
+    }
+
+    private final Path outDir;
+    private final int parallelism;
+    private final List<String> teamArgs;
+    private final Path resultsFile;
+    private final long jobTimeoutMinutes;
+
+    public BatchRunner(Path outDir, int parallelism, List<String> teamArgs) {
+        this.outDir = outDir.toAbsolutePath().normalize();
+        this.parallelism = Math.max(1, parallelism);
+        this.teamArgs = teamArgs;
+        this.resultsFile = this.outDir.resolve("results.jsonl");
+        this.jobTimeoutMinutes = ChatModelProvider.longSetting("AGENTS_BATCH_JOB_TIMEOUT_MINUTES", 120);
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.println("Usage: BatchRunner <requests.jsonl | queue directory> [--parallelism N] [--out directory] [--parallel] [--streaming]");
+            System.exit(2);
+        }
+        Path input = Paths.get(args[0]);
+        int parallelism = (int) ChatModelProvider.longSetting("AGENTS_BATCH_PARALLELISM", 2);
+        Path outDir = Paths.get("batch-" + stripExtension(input.getFileName().toString()));
+        List<String> teamArgs = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("--parallelism") && i + 1 < args.length) {
+                parallelism = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--out") && i + 1 < args.length) {
+                outDir = Paths.get(args[++i]);
+            } else {
+                teamArgs.add(args[i]);
+            }
+        }
+
+        List<Job> jobs = readJobs(input);
+        BatchRunner runner = new BatchRunner(outDir, parallelism, teamArgs);
+        int failed = runner.run(jobs);
+        System.exit(failed == 0 ? 0 : 1);
+    }
+
+    /**
+     * Reads the jobs of a JSONL file or a queue directory
+     */
+    static List<Job> readJobs(Path input) throws IOException {
+        List<Job> jobs = new ArrayList<>();
+        if (Files.isDirectory(input)) {
+            List<Path> files;
+            try (Stream<Path> listing = Files.list(input)) {
+                files = listing.filter(Files::isRegularFile)
+                        .filter(file -> !file.getFileName().toString().startsWith("."))
+                        .sorted()
+                        .collect(Collectors.toList());
+            }
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                String content = Files.readString(file);
+                if (name.endsWith(".json")) {
+                    addJob(jobs, objectMapper.readTree(content), stripExtension(name));
+                } else if (!content.isBlank()) {
+                    jobs.add(new Job(sanitize(stripExtension(name)), content.strip()));
+                }
+            }
+        } else {
+            List<String> lines = Files.readAllLines(input, StandardCharsets.UTF_8);
+            for (int i = 0; i < lines.size(); i++) {
+                if (!lines.get(i).isBlank()) {
+                    addJob(jobs, objectMapper.readTree(lines.get(i)), "job-" + (i + 1));
+                }
+            }
+        }
+        Set<String> ids = new HashSet<>();
+        for (Job job : jobs) {
+            if (!ids.add(job.getId())) {
+                throw new IllegalArgumentException("Duplicate job id: " + job.getId());
+            }
+        }
+        return jobs;
+    }
+
+    private static void addJob(List<Job> jobs, JsonNode json, String defaultId) {
+        String request = json.path("request").asText("");
+        if (request.isBlank()) {
+            System.err.println("Warning: Skipping job " + json.path("id").asText(defaultId) + " without a request");
+            return;
+        }
+        jobs.add(new Job(sanitize(json.path("id").asText(defaultId)), request));
+    }
+
+    /**
+     * Runs the jobs that have not succeeded yet and returns the number of failed jobs
+     */
+    public int run(List<Job> jobs) throws IOException, InterruptedException {
+        Files.createDirectories(outDir);
+        Set<String> finished = finishedJobs();
+        List<Job> pending = jobs.stream().filter(job -> !finished.contains(job.getId())).collect(Collectors.toList());
+        System.out.println("=== Batch of " + jobs.size() + " jobs: " + (jobs.size() - pending.size()) + " already finished, "
+                + pending.size() + " to run with parallelism " + parallelism + ", results in " + resultsFile + " ===");
+
+        long start = System.nanoTime();
+        AtomicInteger failed = new AtomicInteger();
+        AtomicInteger done = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Job job : pending) {
+                futures.add(executor.submit(() -> {
+                    ObjectNode result = runJob(job);
+                    if (!SUCCEEDED.equals(result.path("status").asText())) {
+                        failed.incrementAndGet();
+                    }
+                    appendResult(result);
+                    System.out.println("=== Job " + job.getId() + " " + result.path("status").asText() + " in "
+                            + result.path("durationMillis").asLong() / 1000 + "s (" + done.incrementAndGet() + "/" + pending.size() + ") ===");
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (Exception e) {
+                    System.err.println("Warning: Batch job failed unexpectedly: " + e.getMessage());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        System.out.println("=== Batch finished in " + (System.nanoTime() - start) / 1_000_000_000 + "s: "
+                + (pending.size() - failed.get()) + " succeeded, " + failed.get() + " failed ===");
+        return failed.get();
+    }
+
+    private ObjectNode runJob(Job job) {
+        Path workspace = outDir.resolve("jobs").resolve(job.getId());
+        Path log = workspace.resolve("job.log");
+        Path resultFile = workspace.resolve("result.txt");
+        ObjectNode result = objectMapper.createObjectNode();
+        result.put("id", job.getId());
+        result.put("request", job.getRequest());
+        result.put("workspace", workspace.toString());
+        result.put("log", log.toString());
+        long startedAt = System.currentTimeMillis();
+        result.put("startedAt", startedAt);
+        long start = System.nanoTime();
+        Process process = null;
+        try {
+            Files.createDirectories(workspace);
+            Files.deleteIfExists(resultFile);
+            List<String> command = new ArrayList<>();
+            command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+            command.add("-cp");
+            command.add(absoluteClassPath());
+            command.add(AgentsTeam.class.getName());
+            command.addAll(teamArgs);
+            ProcessBuilder processBuilder = new ProcessBuilder(command)
+                    .directory(workspace.toFile())
+                    .redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.appendTo(log.toFile()));
+            Map<String, String> environment = processBuilder.environment();
+            environment.put("AGENTS_JOB_ID", job.getId());
+            environment.put("AGENTS_REQUEST", job.getRequest());
+            environment.put("AGENTS_RESULT_FILE", resultFile.toString());
+            shareBudget(environment, "AGENTS_REQUESTS_PER_MINUTE", 50);
+            shareBudget(environment, "AGENTS_TOKENS_PER_MINUTE", 80_000);
+            shareBudget(environment, "AGENTS_MODEL_CONCURRENCY", 4);
+
+            process = processBuilder.start();
+            if (!process.waitFor(jobTimeoutMinutes, TimeUnit.MINUTES)) {
+                // Maven, surefire and mvnd client processes of the job would keep working on its workspace
+                BuildExecutor.killTree(process);
+                result.put("status", FAILED);
+                result.put("error", "Timed out after " + jobTimeoutMinutes + " minutes");
+            } else {
+                result.put("exitCode", process.exitValue());
+                boolean succeeded = process.exitValue() == 0 && Files.exists(resultFile);
+                result.put("status", succeeded ? SUCCEEDED : FAILED);
+                if (Files.exists(resultFile)) {
+                    result.put("result", Files.readString(resultFile));
+                } else {
+                    result.put("error", "No result, see the job log");
+                }
+            }
+        } catch (IOException e) {
+            result.put("status", FAILED);
+            result.put("error", e.getMessage());
+        } catch (InterruptedException e) {
+            if (process != null) {
+                BuildExecutor.killTree(process);
+            }
+            Thread.currentThread().interrupt();
+            result.put("status", FAILED);
+            result.put("error", "Interrupted");
+        }
+        result.put("durationMillis", (System.nanoTime() - start) / 1_000_000);
+        addTokenCounts(result, workspace, startedAt);
+        return result;
+    }
+
+    // Totals of the metrics report the job's process wrote at its end, see util.TeamMetrics
+    private static void addTokenCounts(ObjectNode result, Path workspace, long startedAt) {
+        Path metricsDir = workspace.resolve("generated-project/.agent-memory/metrics");
+        if (!Files.isDirectory(metricsDir)) {
+            return;
+        }
+        try (Stream<Path> reports = Files.list(metricsDir)) {
+            Optional<Path> report = reports.filter(file -> file.toString().endsWith(".json"))
+                    .filter(file -> file.toFile().lastModified() >= startedAt)
+                    .max((a, b) -> Long.compare(a.toFile().lastModified(), b.toFile().lastModified()));
+            if (report.isEmpty()) {
+                return;
+            }
+            JsonNode metrics = objectMapper.readTree(report.get().toFile());
+            long modelCalls = 0;
+            long inputTokens = 0;
+            long outputTokens = 0;
+            for (JsonNode model : metrics.path("models")) {
+                modelCalls += model.path("calls").asLong();
+                inputTokens += model.path("inputTokens").asLong();
+                outputTokens += model.path("outputTokens").asLong();
+            }
+            long toolCalls = 0;
+            for (JsonNode tool : metrics.path("tools")) {
+                toolCalls += tool.path("calls").asLong();
+            }
+            result.put("modelCalls", modelCalls);
+            result.put("inputTokens", inputTokens);
+            result.put("outputTokens", outputTokens);
+            result.put("toolCalls", toolCalls);
+            result.put("metricsReport", report.get().toString());
+        } catch (IOException e) {
+            System.err.println("Warning: Failed to read the metrics of " + workspace + ": " + e.getMessage());
+        }
+    }
+
+    private Set<String> finishedJobs() throws IOException {
+        Set<String> finished = new HashSet<>();
+        if (!Files.exists(resultsFile)) {
+            return finished;
+        }
+        for (String line : Files.readAllLines(resultsFile, StandardCharsets.UTF_8)) {
+            try {
+                JsonNode result = objectMapper.readTree(line);
+                if (SUCCEEDED.equals(result.path("status").asText())) {
+                    finished.add(result.path("id").asText());
+                }
+            } catch (IOException e) {
+                // A line cut short by a crash; its job runs again
+            }
+        }
+        return finished;
+    }
+
+    private synchronized void appendResult(ObjectNode result) {
+        try (BufferedWriter writer = Files.newBufferedWriter(resultsFile, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            writer.write(objectMapper.writeValueAsString(result));
+            writer.newLine();
+        } catch (IOException e) {
+            System.err.println("Warning: Failed to record the result of job " + result.path("id").asText() + ": " + e.getMessage());
+        }
+    }
+
+    // The budgets are per process, so the jobs running at once share the configured budget
+    private void shareBudget(Map<String, String> environment, String name, long defaultValue) {
+        long budget = ChatModelProvider.longSetting(name, defaultValue);
+        environment.put(name, String.valueOf(budget <= 0 ? budget : Math.max(1, budget / parallelism)));
+    }
+
+    // The job processes run in their workspace, so relative class path entries must be resolved here
+    private static String absoluteClassPath() {
+        return Stream.of(System.getProperty("java.class.path").split(File.pathSeparator))
+                .filter(entry -> !entry.isBlank())
+                .map(entry -> Paths.get(entry).toAbsolutePath().normalize().toString())
+                .collect(Collectors.joining(File.pathSeparator));
+    }
+
+    private static String stripExtension(String name) {
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+
+    private static String sanitize(String id) {
+        return id.replaceAll("[^a-zA-Z0-9_-]", "_");
+    }
+
+}
@@ -0,0 +1,250 @@
+package com.github.dloiacono.ai.agents;
+
+import com.github.dloiacono.ai.agents.engineering.Architect;
+import com.github.dloiacono.ai.agents.engineering.WorkPackageDeveloper;
+import com.github.dloiacono.ai.agents.engineering.WorkPlanner;
+import com.github.dloiacono.ai.agents.memory.AgentChatMemoryFactory;
+import com.github.dloiacono.ai.agents.product.Analyst;
+import com.github.dloiacono.ai.agents.rag.RAGTool;
+import com.github.dloiacono.ai.agents.tools.CompileCheckTool;
+import com.github.dloiacono.ai.agents.tools.FileSystemTool;
+import com.github.dloiacono.ai.agents.tools.MavenTool;
+import dev.langchain4j.agentic.AgenticServices;
+import dev.langchain4j.model.chat.ChatModel;
+import util.TeamMetrics;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Parallel orchestration mode of the team.
+ * Analyst, Architect and a work planner run one after the other, since each needs the
+ * previous output. The planner splits ARCHITECTURE.MD into independent work packages, each
+ * owning a top-level directory, which are then developed concurrently: every package gets its
+ * own developer agent, with its own memory id and tools that only write inside its directory.
+ * A join step merges the package results, in plan order, into WORK_PACKAGES.MD and the
+ * returned report, so the run takes about the critical path instead of the sum of all turns.
+ */
+public class ParallelTeam {
+
+    private static final int MAX_PARALLEL_PACKAGES = 4;
+    private static final String REPORT_FILE = "WORK_PACKAGES.MD";
+    private static final Pattern WORK_PACKAGE = Pattern.compile(
+            "^\\s*WORK PACKAGE:\\s*(.+?)\\s*\\|\\s*(.+?)\\s*\\|\\s*(.+?)\\s*$", Pattern.MULTILINE);
+
+    /**
+     * A unit of work owning one directory of the project
+     */
+    public static class WorkPackage {
+        private final String name;
+        private final String directory;
+        private final String description;
+
+        public WorkPackage(String name, String directory, String description) {
+            this.name = name;
+            this.directory = directory;
+            this.description = description;
+        }
+
+        public String getName() { return name; }
+        public String getDirectory() { return directory; }
+        public String getDescription() { return description; }
+    }
+
+    /**
+     * Outcome of a work package
+     */
+    public static class PackageResult {
+        private final WorkPackage workPackage;
+        private final String result;
+        private final boolean failed;
+        private final long durationMillis;
+
+        public PackageResult(WorkPackage workPackage, String result, boolean failed, long durationMillis) {
+            this.workPackage = workPackage;
+            this.result = result;
+            this.failed = failed;
+            this.durationMillis = durationMillis;
+        }
+
+        public WorkPackage getWorkPackage() { return workPackage; }
+        public String getResult() { return result; }
+        public boolean isFailed() { return failed; }
+        public long getDurationMillis() { return durationMillis; }
+    }
+
+    private final Function<String, ChatModel> modelForAgent;
+    private final List<String> timings = new ArrayList<>();
+    private long sequentialMillis = 0;
+
+    /**
+     * @param modelForAgent returns the chat model of each agent by name (analyst, architect, planner and developer-<package>)
+     */
+    public ParallelTeam(Function<String, ChatModel> modelForAgent) {
+        this.modelForAgent = modelForAgent;
+    }
+
+    /**
+     * Runs the whole team on the request and returns the merged report
+     */
+    public String run(String request) {
+        long start = System.nanoTime();
+        Analyst analyst = AgenticServices.agentBuilder(Analyst.class)
+                .chatModel(modelForAgent.apply("analyst"))
+                .chatMemory(AgentChatMemoryFactory.createAnalystMemory())
+                .toolProvider(TeamMetrics.tools("analyst", new FileSystemTool(), new RAGTool()))
+                .build();
+        Architect architect = AgenticServices.agentBuilder(Architect.class)
+                .chatModel(modelForAgent.apply("architect"))
+                .chatMemory(AgentChatMemoryFactory.createArchitectMemory())
+                .toolProvider(TeamMetrics.tools("architect", new FileSystemTool(), new RAGTool()))
+                .build();
+        WorkPlanner planner = AgenticServices.agentBuilder(WorkPlanner.class)
+                .chatModel(modelForAgent.apply("planner"))
+                .chatMemory(AgentChatMemoryFactory.createRecallingMemory("planner"))
+                .toolProvider(TeamMetrics.tools("planner", new FileSystemTool(), new RAGTool()))
+                .build();
+
+        timed("analyst", () -> analyst.analyzeFeature(request));
+        timed("architect", architect::designSolution);
+        String plan = timed("planner", planner::planWorkPackages);
+
+        List<WorkPackage> workPackages = parsePlan(plan);
+        if (workPackages.isEmpty()) {
+            System.err.println("Warning: The planner returned no usable work package, developing the whole project as one package");
+            workPackages = List.of(new WorkPackage("application", "application",
+                    "Implement the whole ARCHITECTURE.MD"));
+        }
+
+        List<PackageResult> results = develop(workPackages);
+        String report = join(results);
+        long totalMillis = (System.nanoTime() - start) / 1_000_000;
+
+        long longestPackage = results.stream().mapToLong(PackageResult::getDurationMillis).max().orElse(0);
+        long packagesSum = results.stream().mapToLong(PackageResult::getDurationMillis).sum();
+        System.out.println("=== Parallel team timings: " + String.join(", ", timings) + " ===");
+        System.out.println("=== Parallel team wall time " + totalMillis + "ms, critical path "
+                + (sequentialMillis + longestPackage) + "ms, sequential equivalent " + (sequentialMillis + packagesSum) + "ms ===");
+        return report;
+    }
+
+    // Develops all work packages concurrently, each on its own thread, agent, memory and directory
+    private List<PackageResult> develop(List<WorkPackage> workPackages) {
+        AtomicInteger threads = new AtomicInteger();
+        // Platform threads: the runtime is Java 17, and the pool is bounded by the number of packages anyway
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(workPackages.size(), MAX_PARALLEL_PACKAGES), runnable -> {
+            // The thread name lets the file tools attribute indexed files to the developer
+            Thread thread = new Thread(runnable, "developer-package-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<PackageResult>> futures = new ArrayList<>();
+            for (WorkPackage workPackage : workPackages) {
+                futures.add(executor.submit(() -> developPackage(workPackage)));
+            }
+            List<PackageResult> results = new ArrayList<>();
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    results.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    results.add(new PackageResult(workPackages.get(i), "Failed: " + e.getCause().getMessage(), true, 0));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    futures.forEach(future -> future.cancel(true));
+                    results.add(new PackageResult(workPackages.get(i), "Interrupted", true, 0));
+                    break;
+                }
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private PackageResult developPackage(WorkPackage workPackage) {
+        long start = System.nanoTime();
+        try {
+            WorkPackageDeveloper developer = AgenticServices.agentBuilder(WorkPackageDeveloper.class)
+                    .chatModel(modelForAgent.apply("developer-" + workPackage.getName()))
+                    .chatMemory(AgentChatMemoryFactory.createRecallingMemory("developer-" + workPackage.getName()))
+                    .toolProvider(TeamMetrics.tools("developer-" + workPackage.getName(), new FileSystemTool(workPackage.getDirectory()),
+                            new RAGTool(), new MavenTool(workPackage.getDirectory()), new CompileCheckTool(workPackage.getDirectory())))
+                    .build();
+            String result = developer.developWorkPackage(workPackage.getName(), workPackage.getDirectory(),
+                    workPackage.getDescription());
+            return new PackageResult(workPackage, result, false, (System.nanoTime() - start) / 1_000_000);
+        } catch (Exception e) {
+            System.err.println("Warning: Work package " + workPackage.getName() + " failed: " + e.getMessage());
+            return new PackageResult(workPackage, "Failed: " + e.getMessage(), true, (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    // Merges the package results in plan order and stores them for the next runs
+    private String join(List<PackageResult> results) {
+        StringBuilder report = new StringBuilder();
+        report.append("# Work packages\n\n");
+        for (PackageResult result : results) {
+            WorkPackage workPackage = result.getWorkPackage();
+            report.append("## ").append(workPackage.getName()).append(" (").append(workPackage.getDirectory()).append(")")
+                  .append(result.isFailed() ? " - FAILED" : "").append("\n\n")
+                  .append(workPackage.getDescription()).append("\n\n")
+                  .append("Developed in ").append(result.getDurationMillis() / 1000).append("s.\n\n")
+                  .append(result.getResult() == null ? "" : result.getResult().trim()).append("\n\n");
+            timings.add(workPackage.getName() + "=" + result.getDurationMillis() + "ms");
+        }
+        String status = new FileSystemTool().writeFile(REPORT_FILE, report.toString());
+        if (status.startsWith("Error")) {
+            System.err.println("Warning: " + status);
+        }
+        return report.toString();
+    }
+
+    private <T> T timed(String stage, Supplier<T> work) {
+        long start = System.nanoTime();
+        T result = work.get();
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        sequentialMillis += millis;
+        timings.add(stage + "=" + millis + "ms");
+        return result;
+    }
+
+    /**
+     * Parses the planner answer, keeping packages with a valid and distinct top-level directory
+     */
+    static List<WorkPackage> parsePlan(String plan) {
+        List<WorkPackage> workPackages = new ArrayList<>();
+        if (plan == null) {
+            return workPackages;
+        }
+        Set<String> names = new HashSet<>();
+        Set<String> directories = new HashSet<>();
+        Matcher matcher = WORK_PACKAGE.matcher(plan);
+        while (matcher.find() && workPackages.size() < MAX_PARALLEL_PACKAGES) {
+            String name = matcher.group(1).toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]+", "-").replaceAll("^-|-$", "");
+            String directory = matcher.group(2).replace('\\', '/').replaceAll("^\\./|/+$", "").trim();
+            Path normalized = Path.of(directory).normalize();
+            boolean topLevel = !directory.isEmpty() && normalized.getNameCount() == 1
+                    && !normalized.isAbsolute() && !directory.startsWith(".");
+            if (name.isEmpty() || !topLevel || !names.add(name) || !directories.add(directory)) {
+                System.err.println("Warning: Ignoring work package with an invalid or duplicate name or directory: " + matcher.group());
+                continue;
+            }
+            workPackages.add(new WorkPackage(name, directory, matcher.group(3)));
+        }
+        return workPackages;
+    }
+}
@@ -0,0 +1,221 @@
+package com.github.dloiacono.ai.agents;
+
+import dev.langchain4j.agentic.scope.ResultWithAgenticScope;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.listener.ChatModelListener;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.ChatRequestParameters;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import util.ScriptedChatModel;
+import util.ScriptedChatModel.Step;
+import util.TeamMetrics;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Runs the full supervisor flow of {@link AgentsTeam} offline against a {@link ScriptedChatModel},
+ * to measure the orchestration overhead (tools, memory, RAG, logging) without model latency.
+ * Reports wall time, time per agent split into model and tool time, time per tool, heap
+ * allocation, GC and process I/O bytes.
+ * Usage: PerformanceHarness [script.json]; without a script a built-in conversation is replayed.
+ * All tools work in ./generated-project relative to the working directory, so run it from a
+ * scratch directory.
+ */
+public class PerformanceHarness {
+
+    private static final String REQUEST = "Create a REST API using Quarkus that perform simple calculations between two numbers";
+
+    /**
+     * Time spent by one agent, or in one tool
+     */
+    private static class Timing {
+        private long calls = 0;
+        private long modelNanos = 0;
+        private long toolNanos = 0;
+    }
+
+    private static final Map<String, Timing> agentTimings = new TreeMap<>();
+    private static final Map<String, Timing> toolTimings = new TreeMap<>();
+
+    public static void main(String[] args) throws IOException {
+        ScriptedChatModel script = args.length > 0 ? ScriptedChatModel.load(Paths.get(args[0])) : defaultScript();
+
+        TeamSupervisor teamSupervisor = AgentsTeam.createTeam(agentName -> new TimedChatModel(agentName, script));
+
+        long allocatedBefore = allocatedBytes();
+        long[] gcBefore = gcCountAndMillis();
+        long[] ioBefore = processIo();
+        long start = System.nanoTime();
+        ResultWithAgenticScope<String> result = teamSupervisor.invoke(REQUEST, "Successful build and test of the solution is a must.");
+        long wallNanos = System.nanoTime() - start;
+        long allocated = allocatedBytes() - allocatedBefore;
+        long[] gcAfter = gcCountAndMillis();
+        long[] ioAfter = processIo();
+
+        long modelNanos = agentTimings.values().stream().mapToLong(timing -> timing.modelNanos).sum();
+        System.out.println("=== Harness result: " + result.result() + " ===");
+        System.out.println("=== Wall time " + millis(wallNanos) + "ms, scripted model " + millis(modelNanos)
+                + "ms, orchestration " + millis(wallNanos - modelNanos) + "ms ===");
+        System.out.println("=== Per agent (model calls, model time, tool time) ===");
+        agentTimings.forEach((agent, timing) -> System.out.println("  " + agent + ": " + timing.calls + " calls, "
+                + millis(timing.modelNanos) + "ms model, " + millis(timing.toolNanos) + "ms tools"));
+        System.out.println("=== Per tool (calls, total, average; includes the memory update after the call) ===");
+        toolTimings.forEach((tool, timing) -> System.out.println("  " + tool + ": " + timing.calls + " calls, "
+                + millis(timing.toolNanos) + "ms, " + millis(timing.toolNanos / Math.max(1, timing.calls)) + "ms avg"));
+        System.out.println("=== Allocated " + (allocated < 0 ? "unavailable" : allocated / 1024 / 1024 + "MB")
+                + ", GC " + (gcAfter[0] - gcBefore[0]) + " collections in " + (gcAfter[1] - gcBefore[1]) + "ms ===");
+        System.out.println("=== Process I/O " + (ioBefore == null || ioAfter == null ? "unavailable" : "read " + (ioAfter[0] - ioBefore[0]) / 1024
+                + "KB, written " + (ioAfter[1] - ioBefore[1]) / 1024 + "KB") + " ===");
+        AgentsTeam.printStats();
+    }
+
+    /**
+     * Analyst, architect and developer each read the workspace, write their document or code and answer;
+     * the supervisor delegates to them in turn, then scores and summarizes.
+     */
+    static ScriptedChatModel defaultScript() {
+        return new ScriptedChatModel()
+                .on("You are a planner expert",
+                        Step.text("{\"agentName\": \"analyst\", \"arguments\": {\"feature\": \"" + REQUEST + "\"}}"),
+                        Step.text("{\"agentName\": \"architect\", \"arguments\": {}}"),
+                        Step.text("{\"agentName\": \"developer\", \"arguments\": {}}"),
+                        Step.text("{\"agentName\": \"done\", \"arguments\": {\"response\": \"Calculator API analyzed, designed and developed\"}}"))
+                .on("You are a response evaluator",
+                        Step.text("{\"score1\": 0.8, \"score2\": 0.9}"))
+                .on("Create a short summary",
+                        Step.text("{\"summary\": \"The analyst, architect and developer produced the calculator API\"}"))
+                .on("review features from user input",
+                        Step.toolCall("searchGeneratedContent", "{\"arg0\": \"calculator REST API\"}"),
+                        Step.toolCall("listProjectTree", "{}"),
+                        Step.toolCall("writeFile", "{\"arg0\": \"REQUIREMENTS.MD\", \"arg1\": \"# Calculator API\\n\\nAdd, subtract, multiply and divide two numbers over REST.\\n\"}"),
+                        Step.text("REQUIREMENTS.MD created"))
+                .on("review requirements from file REQUIREMENTS.MD",
+                        Step.toolCall("readFile", "{\"arg0\": \"REQUIREMENTS.MD\"}"),
+                        Step.toolCall("writeFile", "{\"arg0\": \"ARCHITECTURE.MD\", \"arg1\": \"# Architecture\\n\\nA Quarkus resource CalculatorResource with one endpoint per operation.\\n\"}"),
+                        Step.text("ARCHITECTURE.MD created"))
+                .on("implement all specifications",
+                        Step.toolCall("readFile", "{\"arg0\": \"ARCHITECTURE.MD\"}"),
+                        Step.toolCall("writeFile", "{\"arg0\": \"src/main/java/org/acme/Calculator.java\", \"arg1\": \"package org.acme;\\n\\npublic class Calculator {\\n    public double add(double a, double b) {\\n        return a + b;\\n    }\\n}\\n\"}"),
+                        Step.toolCall("searchFiles", "{\"arg0\": \"Calculator\", \"arg1\": \"*.java\", \"arg2\": 20, \"arg3\": 1}"),
+                        Step.text("Calculator implemented"));
+    }
+
+    /**
+     * Times the model calls of one agent. The time between a tool call answer and the agent's next
+     * request is the tool execution, since agents run their tools sequentially between model calls.
+     */
+    private static class TimedChatModel implements ChatModel {
+        private final String agentName;
+        private final ChatModel delegate;
+        private final List<ChatModelListener> listeners;
+        private List<String> pendingTools = List.of();
+        private long lastResponseNanos;
+
+        TimedChatModel(String agentName, ChatModel delegate) {
+            this.agentName = agentName;
+            this.delegate = delegate;
+            this.listeners = List.of(TeamMetrics.modelListener(agentName));
+        }
+
+        @Override
+        public ChatResponse doChat(ChatRequest chatRequest) {
+            long start = System.nanoTime();
+            synchronized (PerformanceHarness.class) {
+                Timing agent = agentTimings.computeIfAbsent(agentName, name -> new Timing());
+                if (!pendingTools.isEmpty()) {
+                    long toolNanos = start - lastResponseNanos;
+                    agent.toolNanos += toolNanos;
+                    for (String tool : pendingTools) {
+                        Timing timing = toolTimings.computeIfAbsent(tool, name -> new Timing());
+                        timing.calls++;
+                        timing.toolNanos += toolNanos / pendingTools.size();
+                    }
+                }
+            }
+            ChatResponse response = delegate.chat(chatRequest);
+            long end = System.nanoTime();
+            synchronized (PerformanceHarness.class) {
+                Timing agent = agentTimings.get(agentName);
+                agent.calls++;
+                agent.modelNanos += end - start;
+            }
+            List<String> tools = new ArrayList<>();
+            if (response.aiMessage().hasToolExecutionRequests()) {
+                response.aiMessage().toolExecutionRequests().stream().map(ToolExecutionRequest::name).forEach(tools::add);
+            }
+            pendingTools = tools;
+            lastResponseNanos = end;
+            return response;
+        }
+
+        @Override
+        public ChatRequestParameters defaultRequestParameters() {
+            return delegate.defaultRequestParameters();
+        }
+
+        // Reports to the team metrics like the models of ChatModelProvider do
+        @Override
+        public List<ChatModelListener> listeners() {
+            return listeners;
+        }
+    }
+
+    private static long millis(long nanos) {
+        return nanos / 1_000_000;
+    }
+
+    // Bytes allocated by all live threads; threads that ended during the run are not counted
+    private static long allocatedBytes() {
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads)
+                || !threads.isThreadAllocatedMemorySupported()) {
+            return -1;
+        }
+        long total = 0;
+        for (long allocated : threads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+            total += Math.max(0, allocated);
+        }
+        return total;
+    }
+
+    private static long[] gcCountAndMillis() {
+        long count = 0;
+        long millis = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, collector.getCollectionCount());
+            millis += Math.max(0, collector.getCollectionTime());
+        }
+        return new long[]{count, millis};
+    }
+
+    // Characters read and written by the process, including files and sockets; Linux only
+    private static long[] processIo() {
+        Path io = Paths.get("/proc/self/io");
+        if (!Files.isReadable(io)) {
+            return null;
+        }
+        try {
+            long read = 0;
+            long written = 0;
+            for (String line : Files.readAllLines(io)) {
+                if (line.startsWith("rchar:")) {
+                    read = Long.parseLong(line.substring("rchar:".length()).trim());
+                } else if (line.startsWith("wchar:")) {
+                    written = Long.parseLong(line.substring("wchar:".length()).trim());
+                }
+            }
+            return new long[]{read, written};
+        } catch (IOException | NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -13,7 +13,7 @@ public interface Architect {
             1. FIRST: Use searchGeneratedContent() to search for any previous architectural decisions, patterns, or designs
             2. SECOND: Use listIndexedFiles() to see what architecture files and technical documentation already exist
             3. THIRD: Review your chat memory to understand previous architectural discussions and decisions
-            4. FOURTH: Read the current project folder content to evaluate the current status and existing architecture
+            4. FOURTH: If your chat memory contains a workspace cursor from a previous turn, use listChangesSince(cursor) to see only what changed; otherwise use listProjectTree() to see the current project folder. Read only the files you need to evaluate the current status and existing architecture
             5. FIFTH: Read the REQUIREMENTS.MD file to understand the current requirements
             
             After gathering context from memory and RAG:
@@ -22,8 +22,9 @@ public interface Architect {
             You must write the ARCHITECTURE.MD file in the current system directory as input.
             You must keep the ARCHITECTURE.MD file up to date even when you will have more interactions.
             You must use tools to write, read and create files.
-            You must user tools to read entire project files as context.
+            You must use tools to read the project files you need as context (prefer listProjectTree() and listProjectFilesWithBudget() over listProjectFiles()).
             
+            IMPORTANT: Always mention the latest workspace cursor in your final answer so you can reuse it next time.
             IMPORTANT: Always start by consulting your memory and knowledge base before making architectural decisions.
             IMPORTANT: Create ARCHITECTURE.MD file containing your results.
             IMPORTANT: Maintain consistency with previous architectural decisions and patterns.
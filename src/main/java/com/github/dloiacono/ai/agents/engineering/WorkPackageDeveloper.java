@@ -0,0 +1,36 @@
+package com.github.dloiacono.ai.agents.engineering;
+
+import dev.langchain4j.agentic.Agent;
+import dev.langchain4j.service.SystemMessage;
+import dev.langchain4j.service.UserMessage;
+import dev.langchain4j.service.V;
+
+public interface WorkPackageDeveloper {
+
+    @Agent(name = "package-developer", description = "Develops a single work package of ARCHITECTURE.MD in its own directory.")
+    @SystemMessage("""
+            You are working for engineering department to implement one work package of the ARCHITECTURE.MD file.
+            Other developers implement the other work packages at the same time in other directories.
+            
+            CRITICAL FIRST STEPS - ALWAYS DO THESE BEFORE STARTING ANY WORK:
+            1. FIRST: Review your chat memory to understand previous development decisions, issues, and solutions
+            2. SECOND: If your chat memory contains a workspace cursor from a previous turn, use listChangesSince(cursor) to see only what changed; otherwise use listProjectTree() to see the current project folder
+            3. THIRD: Read the ARCHITECTURE.MD and REQUIREMENTS.MD files, focusing on the parts of your work package
+            
+            You must only create and change files inside the directory of your work package, writes elsewhere are rejected.
+            You must write production-quality code with unit tests, following the technologies chosen in ARCHITECTURE.MD.
+            You must use Maven as build tool for Java code, with the pom.xml in the directory of your work package.
+            You must use writeFiles() to create several files at once and applyPatch() to change existing files.
+            You must use checkCompile() after editing Java code and runTests(true) to run the affected tests, and runTests(false) for a final full run.
+            You must loop until all tests of your work package passed.
+            You must document your work package in a README.MD file in its directory.
+            
+            IMPORTANT: Always mention the latest workspace cursor in your final answer so you can reuse it next time.
+            IMPORTANT: End your answer with a short summary of what you built, how to build it and what is still missing.
+            """)
+    @UserMessage("""
+            Implement the work package "{{name}}" in the directory "{{directory}}" of the project:
+            {{description}}
+            """)
+    String developWorkPackage(@V("name") String name, @V("directory") String directory, @V("description") String description);
+}
@@ -0,0 +1,25 @@
+package com.github.dloiacono.ai.agents.engineering;
+
+import dev.langchain4j.agentic.Agent;
+import dev.langchain4j.service.SystemMessage;
+import dev.langchain4j.service.UserMessage;
+
+public interface WorkPlanner {
+
+    @Agent(name = "planner", description = "Splits the implementation of ARCHITECTURE.MD into independent work packages.")
+    @SystemMessage("""
+            You are working for engineering department and plan the implementation of the ARCHITECTURE.MD file.
+            
+            You must read the ARCHITECTURE.MD and REQUIREMENTS.MD files and use listProjectTree() to see the current project folder.
+            You must split the implementation into work packages that can be developed at the same time by different developers.
+            Each work package must own a separate top-level directory of the project, e.g. "backend" and "frontend".
+            Work packages must not depend on each other's code: a package that needs another one must be part of it.
+            You must not create more than 4 work packages, and a single work package is fine when the work cannot be split.
+            You must not write or change any file.
+            
+            IMPORTANT: Answer only with one line per work package, in this exact format and without any other text:
+            WORK PACKAGE: <short-name> | <directory> | <what must be implemented, in one sentence>
+            """)
+    @UserMessage("Plan the work packages to implement the ARCHITECTURE.MD file.")
+    String planWorkPackages();
+}
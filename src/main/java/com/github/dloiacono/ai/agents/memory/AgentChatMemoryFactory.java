@@ -7,21 +7,20 @@ import dev.langchain4j.store.memory.chat.ChatMemoryStore;
 /**
  * Factory class for creating agent-specific chat memory configurations.
  * Each agent gets its own persistent chat memory with a unique memory ID.
+ * Inside a batch job (AGENTS_JOB_ID set, see BatchRunner) the IDs are prefixed with the job ID.
  */
 public class AgentChatMemoryFactory {
     
     private static final int DEFAULT_MAX_MESSAGES = 100;
+    private static final int DEFAULT_LIVE_WINDOW = 30;
+    private static final int DEFAULT_RECALL_TOP_K = 5;
     
     /**
      * Creates a chat memory for the Analyst agent
      * @return ChatMemory configured for the analyst
      */
     public static ChatMemory createAnalystMemory() {
-        return MessageWindowChatMemory.builder()
-                .id("analyst")
-                .maxMessages(DEFAULT_MAX_MESSAGES)
-                .chatMemoryStore(new PersistentChatMemoryStore())
-                .build();
+        return createRecallingMemory("analyst");
     }
     
     /**
@@ -29,11 +28,7 @@ public class AgentChatMemoryFactory {
      * @return ChatMemory configured for the architect
      */
     public static ChatMemory createArchitectMemory() {
-        return MessageWindowChatMemory.builder()
-                .id("architect")
-                .maxMessages(DEFAULT_MAX_MESSAGES)
-                .chatMemoryStore(new PersistentChatMemoryStore())
-                .build();
+        return createRecallingMemory("architect");
     }
     
     /**
@@ -41,13 +36,35 @@ public class AgentChatMemoryFactory {
      * @return ChatMemory configured for the developer
      */
     public static ChatMemory createDeveloperMemory() {
-        return MessageWindowChatMemory.builder()
-                .id("developer")
-                .maxMessages(DEFAULT_MAX_MESSAGES)
-                .chatMemoryStore(new PersistentChatMemoryStore())
-                .build();
+        return createRecallingMemory("developer");
     }
     
+    /**
+     * Creates a chat memory with a small live window whose evicted messages are archived
+     * and recalled into the prompt when relevant to the current turn
+     * @param memoryId The unique identifier for this memory
+     * @return ChatMemory with long-term recall configured with the default settings
+     */
+    public static ChatMemory createRecallingMemory(String memoryId) {
+        return createRecallingMemory(memoryId, DEFAULT_LIVE_WINDOW, DEFAULT_RECALL_TOP_K);
+    }
+
+    /**
+     * Creates a chat memory with long-term recall and custom configuration
+     * @param memoryId The unique identifier for this memory
+     * @param liveWindow Maximum number of messages kept verbatim in the prompt
+     * @param recallTopK Maximum number of archived messages recalled per prompt
+     * @return ChatMemory with long-term recall configured with the specified parameters
+     */
+    public static ChatMemory createRecallingMemory(String memoryId, int liveWindow, int recallTopK) {
+        ChatMemory window = MessageWindowChatMemory.builder()
+                .id(jobScoped(memoryId))
+                .maxMessages(liveWindow)
+                .chatMemoryStore(new ArchivingChatMemoryStore(new PersistentChatMemoryStore()))
+                .build();
+        return new RecallingChatMemory(window, recallTopK);
+    }
+
     /**
      * Creates a chat memory with a custom memory ID
      * @param memoryId The unique identifier for this memory
@@ -55,7 +72,7 @@ public class AgentChatMemoryFactory {
      */
     public static ChatMemory createCustomMemory(String memoryId) {
         return MessageWindowChatMemory.builder()
-                .id(memoryId)
+                .id(jobScoped(memoryId))
                 .maxMessages(DEFAULT_MAX_MESSAGES)
                 .chatMemoryStore(new PersistentChatMemoryStore())
                 .build();
@@ -69,9 +86,14 @@ public class AgentChatMemoryFactory {
      */
     public static ChatMemory createCustomMemory(String memoryId, int maxMessages) {
         return MessageWindowChatMemory.builder()
-                .id(memoryId)
+                .id(jobScoped(memoryId))
                 .maxMessages(maxMessages)
                 .chatMemoryStore(new PersistentChatMemoryStore())
                 .build();
     }
+
+    private static String jobScoped(String memoryId) {
+        String jobId = System.getenv("AGENTS_JOB_ID");
+        return jobId == null || jobId.isBlank() ? memoryId : jobId + "-" + memoryId;
+    }
 }
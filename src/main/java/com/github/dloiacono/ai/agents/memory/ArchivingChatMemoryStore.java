@@ -0,0 +1,67 @@
+package com.github.dloiacono.ai.agents.memory;
+
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * ChatMemoryStore decorator that detects messages evicted by the live message window
+ * and moves them into the agent's {@link ChatMemoryArchive} instead of dropping them.
+ */
+public class ArchivingChatMemoryStore implements ChatMemoryStore {
+
+    private final ChatMemoryStore delegate;
+    private final ConcurrentMap<Object, List<ChatMessage>> lastKnownMessages = new ConcurrentHashMap<>();
+
+    public ArchivingChatMemoryStore(ChatMemoryStore delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public List<ChatMessage> getMessages(Object memoryId) {
+        List<ChatMessage> messages = lastKnownMessages.computeIfAbsent(memoryId,
+                id -> new ArrayList<>(delegate.getMessages(id)));
+        return new ArrayList<>(messages);
+    }
+
+    @Override
+    public void updateMessages(Object memoryId, List<ChatMessage> messages) {
+        List<ChatMessage> previous = getMessages(memoryId);
+        List<ChatMessage> evicted = findEvicted(previous, messages);
+        if (!evicted.isEmpty()) {
+            ChatMemoryArchive.forMemory(memoryId).archive(evicted);
+        }
+        delegate.updateMessages(memoryId, messages);
+        lastKnownMessages.put(memoryId, new ArrayList<>(messages));
+    }
+
+    @Override
+    public void deleteMessages(Object memoryId) {
+        delegate.deleteMessages(memoryId);
+        lastKnownMessages.remove(memoryId);
+    }
+
+    // Messages present before the update but missing afterwards, counting duplicates
+    private static List<ChatMessage> findEvicted(List<ChatMessage> previous, List<ChatMessage> current) {
+        Map<ChatMessage, Integer> remaining = new HashMap<>();
+        for (ChatMessage message : current) {
+            remaining.merge(message, 1, Integer::sum);
+        }
+        List<ChatMessage> evicted = new ArrayList<>();
+        for (ChatMessage message : previous) {
+            Integer count = remaining.get(message);
+            if (count == null || count == 0) {
+                evicted.add(message);
+            } else {
+                remaining.put(message, count - 1);
+            }
+        }
+        return evicted;
+    }
+}
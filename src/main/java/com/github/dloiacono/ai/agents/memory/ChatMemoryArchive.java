@@ -0,0 +1,296 @@
+package com.github.dloiacono.ai.agents.memory;
+
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.ChatMessageDeserializer;
+import dev.langchain4j.data.message.ChatMessageSerializer;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.UserMessage;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+
+/**
+ * Long-term archive of chat messages that fell out of an agent's live message window.
+ * Evicted messages are appended, one JSON line each, to a file next to the live memory file
+ * and indexed with a lexical (keyword + inverse document frequency) index, so that only the
+ * top-k relevant past messages need to be recalled into the prompt. Only the most recent
+ * messages are kept; the file is rewritten without the dropped ones once they make up half
+ * of it, so both memory and disk use stay bounded.
+ */
+public class ChatMemoryArchive {
+
+    private static final ConcurrentMap<String, ChatMemoryArchive> archives = new ConcurrentHashMap<>();
+
+    // Recalled snippets are capped so a single huge tool result cannot flood the prompt
+    private static final int MAX_SNIPPET_CHARS = 1000;
+    private static final int MAX_ENTRIES = 500;
+
+    private final Path archiveFile;
+    private final List<ArchivedMessage> entries = new ArrayList<>();
+    private final Map<String, Integer> documentFrequency = new HashMap<>();
+    private int nextSequence = 0;
+    // Lines in the archive file, including those of dropped entries until the next rewrite
+    private int fileLines = 0;
+
+    private ChatMemoryArchive(Path archiveFile) {
+        this.archiveFile = archiveFile;
+        load();
+    }
+
+    /**
+     * Archived message together with its rendered text and extracted keywords
+     */
+    public static class ArchivedMessage {
+        private final int sequence;
+        private final ChatMessage message;
+        private final String text;
+        private final Set<String> keywords;
+
+        ArchivedMessage(int sequence, ChatMessage message) {
+            this.sequence = sequence;
+            this.message = message;
+            String fullText = render(message);
+            this.text = fullText.length() > MAX_SNIPPET_CHARS
+                    ? fullText.substring(0, MAX_SNIPPET_CHARS) + " [truncated...]"
+                    : fullText;
+            this.keywords = extractKeywords(fullText);
+        }
+
+        public int getSequence() { return sequence; }
+        public ChatMessage getMessage() { return message; }
+        public String getText() { return text; }
+        public Set<String> getKeywords() { return keywords; }
+    }
+
+    /**
+     * Returns the archive for the given memory ID, loading it from disk on first access
+     */
+    public static ChatMemoryArchive forMemory(Object memoryId) {
+        String sanitizedId = PersistentChatMemoryStore.sanitizeMemoryId(memoryId);
+        return archives.computeIfAbsent(sanitizedId, id -> new ChatMemoryArchive(
+                Paths.get(PersistentChatMemoryStore.MEMORY_BASE_DIR).toAbsolutePath().normalize()
+                        .resolve(id + "_chat_archive.jsonl")));
+    }
+
+    /**
+     * Adds evicted messages to the archive and appends them to its file. System messages are
+     * skipped because they are re-sent on every call anyway.
+     */
+    public synchronized void archive(List<ChatMessage> evicted) {
+        List<ArchivedMessage> added = new ArrayList<>();
+        for (ChatMessage message : evicted) {
+            if (message instanceof SystemMessage) {
+                continue;
+            }
+            ArchivedMessage entry = new ArchivedMessage(nextSequence, message);
+            if (entry.getText().isBlank()) {
+                continue;
+            }
+            addEntry(entry);
+            added.add(entry);
+        }
+        if (added.isEmpty()) {
+            return;
+        }
+        trim();
+        if (fileLines + added.size() <= 2 * MAX_ENTRIES || !rewrite()) {
+            append(added);
+        }
+    }
+
+    /**
+     * Returns up to topK archived messages ranked by relevance to the query, in their
+     * original conversation order
+     */
+    public synchronized List<ArchivedMessage> recall(String query, int topK) {
+        Set<String> queryKeywords = extractKeywords(query);
+        if (queryKeywords.isEmpty() || entries.isEmpty() || topK <= 0) {
+            return Collections.emptyList();
+        }
+
+        List<Map.Entry<ArchivedMessage, Double>> scored = new ArrayList<>();
+        for (ArchivedMessage entry : entries) {
+            double score = 0.0;
+            for (String keyword : queryKeywords) {
+                if (entry.getKeywords().contains(keyword)) {
+                    score += Math.log(1.0 + (double) entries.size() / documentFrequency.get(keyword));
+                }
+            }
+            if (score > 0.0) {
+                scored.add(Map.entry(entry, score));
+            }
+        }
+
+        return scored.stream()
+                .sorted((a, b) -> Double.compare(b.getValue(), a.getValue()))
+                .limit(topK)
+                .map(Map.Entry::getKey)
+                .sorted((a, b) -> Integer.compare(a.getSequence(), b.getSequence()))
+                .collect(Collectors.toList());
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Drops all archived messages for this memory
+     */
+    public synchronized void clear() {
+        entries.clear();
+        documentFrequency.clear();
+        fileLines = 0;
+        try {
+            Files.deleteIfExists(archiveFile);
+        } catch (IOException e) {
+            System.err.println("Warning: Failed to delete chat archive file " + archiveFile + ": " + e.getMessage());
+        }
+    }
+
+    private void addEntry(ArchivedMessage entry) {
+        entries.add(entry);
+        nextSequence = entry.getSequence() + 1;
+        for (String keyword : entry.getKeywords()) {
+            documentFrequency.merge(keyword, 1, Integer::sum);
+        }
+    }
+
+    // Drops the oldest entries beyond the limit from memory; their lines go at the next rewrite
+    private void trim() {
+        if (entries.size() <= MAX_ENTRIES) {
+            return;
+        }
+        List<ArchivedMessage> dropped = entries.subList(0, entries.size() - MAX_ENTRIES);
+        for (ArchivedMessage entry : dropped) {
+            for (String keyword : entry.getKeywords()) {
+                documentFrequency.computeIfPresent(keyword, (key, count) -> count == 1 ? null : count - 1);
+            }
+        }
+        dropped.clear();
+    }
+
+    private void load() {
+        if (!Files.exists(archiveFile)) {
+            return;
+        }
+        int skipped = 0;
+        try {
+            for (String line : Files.readAllLines(archiveFile)) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                fileLines++;
+                try {
+                    addEntry(new ArchivedMessage(nextSequence, ChatMessageDeserializer.messageFromJson(line)));
+                } catch (Exception e) {
+                    // A line cut short by a crash only loses that message
+                    skipped++;
+                }
+            }
+        } catch (IOException e) {
+            // An unreadable archive must not prevent the agent from starting
+            System.err.println("Warning: Failed to load chat archive " + archiveFile + ": " + e.getMessage());
+        }
+        trim();
+        if (skipped > 0) {
+            System.err.println("Warning: Skipped " + skipped + " unreadable entries of chat archive " + archiveFile);
+            // Appending after a line cut short would corrupt the next entry too
+            rewrite();
+        }
+    }
+
+    private void append(List<ArchivedMessage> added) {
+        StringBuilder lines = new StringBuilder();
+        for (ArchivedMessage entry : added) {
+            lines.append(ChatMessageSerializer.messageToJson(entry.getMessage())).append("\n");
+        }
+        try {
+            Files.createDirectories(archiveFile.getParent());
+            Files.writeString(archiveFile, lines, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            fileLines += added.size();
+        } catch (IOException e) {
+            // The in-memory archive still works, only persistence across runs is lost
+            System.err.println("Warning: Failed to update chat archive file " + archiveFile + ": " + e.getMessage());
+        }
+    }
+
+    // Writes the kept entries to a temporary file renamed over the archive, so a crash leaves either version
+    private boolean rewrite() {
+        StringBuilder lines = new StringBuilder();
+        for (ArchivedMessage entry : entries) {
+            lines.append(ChatMessageSerializer.messageToJson(entry.getMessage())).append("\n");
+        }
+        Path temp = null;
+        try {
+            Files.createDirectories(archiveFile.getParent());
+            temp = Files.createTempFile(archiveFile.getParent(), archiveFile.getFileName() + ".", ".tmp");
+            Files.writeString(temp, lines);
+            try {
+                Files.move(temp, archiveFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, archiveFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+            fileLines = entries.size();
+            return true;
+        } catch (IOException e) {
+            System.err.println("Warning: Failed to rewrite chat archive file " + archiveFile + ": " + e.getMessage());
+            try {
+                if (temp != null) {
+                    Files.deleteIfExists(temp);
+                }
+            } catch (IOException ignored) {
+                // Best effort cleanup of the temporary file
+            }
+            return false;
+        }
+    }
+
+    static String render(ChatMessage message) {
+        if (message instanceof UserMessage userMessage) {
+            return "User: " + (userMessage.hasSingleText() ? userMessage.singleText() : userMessage.contents().toString());
+        } else if (message instanceof AiMessage aiMessage) {
+            StringBuilder sb = new StringBuilder("Assistant: ");
+            if (aiMessage.text() != null) {
+                sb.append(aiMessage.text());
+            }
+            if (aiMessage.hasToolExecutionRequests()) {
+                for (ToolExecutionRequest request : aiMessage.toolExecutionRequests()) {
+                    sb.append(" [called ").append(request.name()).append(" ").append(request.arguments()).append("]");
+                }
+            }
+            return sb.toString();
+        } else if (message instanceof ToolExecutionResultMessage toolResult) {
+            return "Tool " + toolResult.toolName() + " returned: " + toolResult.text();
+        }
+        return "";
+    }
+
+    static Set<String> extractKeywords(String text) {
+        if (text == null) {
+            return Collections.emptySet();
+        }
+        return Arrays.stream(text.toLowerCase()
+                .replaceAll("[^a-zA-Z0-9\\s]", " ")
+                .split("\\s+"))
+                .filter(word -> word.length() > 2)
+                .collect(Collectors.toSet());
+    }
+}
@@ -19,7 +19,7 @@ import java.util.Collections;
  */
 public class PersistentChatMemoryStore implements ChatMemoryStore {
     
-    private static final String MEMORY_BASE_DIR = "./generated-project/.agent-memory";
+    static final String MEMORY_BASE_DIR = "./generated-project/.agent-memory";
     private final Path memoryDir;
     
     public PersistentChatMemoryStore() {
@@ -40,7 +40,7 @@ public class PersistentChatMemoryStore implements ChatMemoryStore {
         return memoryDir.resolve(sanitizedId + "_chat_memory.json");
     }
     
-    private String sanitizeMemoryId(Object memoryId) {
+    static String sanitizeMemoryId(Object memoryId) {
         if (memoryId == null) {
             return "default";
         }
@@ -0,0 +1,83 @@
+package com.github.dloiacono.ai.agents.memory;
+
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.memory.ChatMemory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ChatMemory that keeps a small live window and, when the prompt is built, recalls the
+ * top-k archived messages relevant to the most recent turns. Recalled messages are appended
+ * to the system message so the live conversation order is never altered.
+ */
+public class RecallingChatMemory implements ChatMemory {
+
+    // Number of most recent live messages used to build the recall query
+    private static final int QUERY_MESSAGES = 3;
+
+    private final ChatMemory delegate;
+    private final int topK;
+
+    public RecallingChatMemory(ChatMemory delegate, int topK) {
+        this.delegate = delegate;
+        this.topK = topK;
+    }
+
+    @Override
+    public Object id() {
+        return delegate.id();
+    }
+
+    @Override
+    public void add(ChatMessage message) {
+        delegate.add(message);
+    }
+
+    @Override
+    public List<ChatMessage> messages() {
+        List<ChatMessage> messages = delegate.messages();
+        List<ChatMemoryArchive.ArchivedMessage> recalled = ChatMemoryArchive.forMemory(id())
+                .recall(buildQuery(messages), topK);
+        if (recalled.isEmpty()) {
+            return messages;
+        }
+
+        StringBuilder recall = new StringBuilder();
+        recall.append("Relevant messages recalled from earlier in your conversation history:\n");
+        for (ChatMemoryArchive.ArchivedMessage archived : recalled) {
+            recall.append("- ").append(archived.getText()).append("\n");
+        }
+
+        List<ChatMessage> result = new ArrayList<>(messages.size() + 1);
+        if (!messages.isEmpty() && messages.get(0) instanceof SystemMessage systemMessage) {
+            result.add(SystemMessage.from(systemMessage.text() + "\n\n" + recall));
+            result.addAll(messages.subList(1, messages.size()));
+        } else {
+            result.add(SystemMessage.from(recall.toString()));
+            result.addAll(messages);
+        }
+        return result;
+    }
+
+    @Override
+    public void clear() {
+        delegate.clear();
+        ChatMemoryArchive.forMemory(id()).clear();
+    }
+
+    private static String buildQuery(List<ChatMessage> messages) {
+        StringBuilder query = new StringBuilder();
+        int used = 0;
+        for (int i = messages.size() - 1; i >= 0 && used < QUERY_MESSAGES; i--) {
+            ChatMessage message = messages.get(i);
+            if (message instanceof SystemMessage) {
+                continue;
+            }
+            query.append(ChatMemoryArchive.render(message)).append("\n");
+            used++;
+        }
+        return query.toString();
+    }
+}
@@ -88,24 +88,9 @@ public class SimpleRAGStore {
      */
     public static boolean indexFile(Path filePath, String agentId) {
         try {
-            if (!Files.exists(filePath) || !Files.isRegularFile(filePath)) {
+            if (!storeFile(filePath, agentId)) {
                 return false;
             }
-            
-            String content = Files.readString(filePath);
-            String fileName = filePath.getFileName().toString();
-            
-            // Split content into segments (simple approach - split by paragraphs or size)
-            List<String> segments = splitContent(content);
-            
-            List<DocumentSegment> documentSegments = segments.stream()
-                    .map(segment -> new DocumentSegment(segment, filePath.toString(), agentId, fileName))
-                    .collect(Collectors.toList());
-            
-            // Store segments
-            String storeKey = filePath.toString();
-            documentStore.put(storeKey, documentSegments);
-            
             System.out.println("Successfully indexed file: " + filePath + " (generated by: " + agentId + ")");
             return true;
             
@@ -115,6 +100,49 @@ public class SimpleRAGStore {
         }
     }
     
+    /**
+     * Index several files in one pass, reporting a single summary line instead of one line per file
+     */
+    public static int indexFiles(List<Path> filePaths, String agentId) {
+        int indexed = 0;
+        List<String> failed = new ArrayList<>();
+        for (Path filePath : filePaths) {
+            try {
+                if (storeFile(filePath, agentId)) {
+                    indexed++;
+                }
+            } catch (Exception e) {
+                failed.add(filePath + " (" + e.getMessage() + ")");
+            }
+        }
+        System.out.println("Successfully indexed " + indexed + " of " + filePaths.size() + " files (generated by: " + agentId + ")");
+        if (!failed.isEmpty()) {
+            System.err.println("Failed to index files: " + String.join(", ", failed));
+        }
+        return indexed;
+    }
+    
+    private static boolean storeFile(Path filePath, String agentId) throws IOException {
+        if (!Files.exists(filePath) || !Files.isRegularFile(filePath)) {
+            return false;
+        }
+        
+        String content = Files.readString(filePath);
+        String fileName = filePath.getFileName().toString();
+        
+        // Split content into segments (simple approach - split by paragraphs or size)
+        List<String> segments = splitContent(content);
+        
+        List<DocumentSegment> documentSegments = segments.stream()
+                .map(segment -> new DocumentSegment(segment, filePath.toString(), agentId, fileName))
+                .collect(Collectors.toList());
+        
+        // Store segments
+        String storeKey = filePath.toString();
+        documentStore.put(storeKey, documentSegments);
+        return true;
+    }
+    
     /**
      * Search for relevant content based on query
      */
@@ -181,6 +209,13 @@ public class SimpleRAGStore {
         }
     }
     
+    /**
+     * Remove a deleted file from the index
+     */
+    public static void removeFile(Path filePath) {
+        documentStore.remove(filePath.toString());
+    }
+    
     /**
      * Clear all indexed content
      */
@@ -226,9 +261,11 @@ public class SimpleRAGStore {
     private static boolean shouldIndexFile(Path filePath) {
         String fileName = filePath.getFileName().toString();
         
-        // Skip hidden files and directories
-        if (fileName.startsWith(".")) {
-            return false;
+        // Skip hidden files and directories (agent memory, build logs, ...)
+        for (Path name : filePath.normalize()) {
+            if (name.toString().startsWith(".") && !name.toString().equals("..")) {
+                return false;
+            }
         }
         
         // Skip binary files and build artifacts
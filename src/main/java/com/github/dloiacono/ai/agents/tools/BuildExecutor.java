@@ -0,0 +1,281 @@
+package com.github.dloiacono.ai.agents.tools;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Runs builds asynchronously on a small bounded pool.
+ * Each process is waited for with a deadline while a separate thread streams its output
+ * into the log file and a bounded ring buffer of the last lines, so neither a hung build
+ * nor a very chatty one can block the caller or exhaust memory. On timeout or cancel the
+ * whole process tree is killed, which matters for Maven since forked surefire JVMs outlive
+ * a killed parent otherwise. A Maven daemon is not part of the tree, {@link MavenTool} stops it.
+ */
+public class BuildExecutor {
+
+    private static final int POOL_SIZE = 2;
+    private static final int MAX_FINISHED_JOBS = 20;
+    private static final int TAIL_LINES = 200;
+    private static final int MAX_LINE_CHARS = 2000;
+    // Time for the output thread to drain after the process ended or was killed
+    private static final long DRAIN_MILLIS = 5000;
+
+    private static final AtomicInteger threadCount = new AtomicInteger();
+    private static final ExecutorService pool = Executors.newFixedThreadPool(POOL_SIZE, runnable -> {
+        Thread thread = new Thread(runnable, "maven-build-" + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final Map<Integer, BuildJob> jobs = new LinkedHashMap<>();
+    private static int nextJobId = 1;
+
+    private BuildExecutor() {
+    }
+
+    /**
+     * A submitted build that can be polled, awaited or cancelled
+     */
+    public static class BuildJob {
+        private final int id;
+        private final String command;
+        private final long submittedAt = System.currentTimeMillis();
+        private final OutputBuffer output = new OutputBuffer();
+        private volatile Future<String> result;
+        private volatile Process process;
+        private volatile boolean started;
+        private volatile boolean cancelled;
+
+        private BuildJob(int id, String command) {
+            this.id = id;
+            this.command = command;
+        }
+
+        public int getId() { return id; }
+        public String getCommand() { return command; }
+        public boolean isCancelled() { return cancelled; }
+        public boolean isDone() { return result.isDone(); }
+        public long getElapsedMillis() { return System.currentTimeMillis() - submittedAt; }
+        public List<String> tail(int lines) { return output.tail(lines); }
+
+        /**
+         * Waits up to the given time and returns the result, or null if the build is still running
+         */
+        public String await(long millis) throws InterruptedException {
+            try {
+                return result.get(millis, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                return null;
+            } catch (CancellationException e) {
+                return "Build " + id + " was cancelled: mvn " + command;
+            } catch (ExecutionException e) {
+                return "Unexpected error executing Maven command: " + e.getCause().getMessage();
+            }
+        }
+
+        /**
+         * Kills the running process tree, or prevents a queued build from starting
+         */
+        public void cancel() {
+            cancelled = true;
+            if (!started) {
+                // A running build reports its own cancellation once its process tree is gone
+                result.cancel(false);
+            }
+            Process running = process;
+            if (running != null) {
+                killTree(running);
+            }
+        }
+    }
+
+    /**
+     * Outcome of a single process
+     */
+    public static class ProcessRun {
+        private final int exitCode;
+        private final boolean timedOut;
+        private final boolean cancelled;
+        private final long durationMillis;
+        private final long lineCount;
+        private final List<String> tail;
+
+        ProcessRun(int exitCode, boolean timedOut, boolean cancelled, long durationMillis, long lineCount, List<String> tail) {
+            this.exitCode = exitCode;
+            this.timedOut = timedOut;
+            this.cancelled = cancelled;
+            this.durationMillis = durationMillis;
+            this.lineCount = lineCount;
+            this.tail = tail;
+        }
+
+        public int getExitCode() { return exitCode; }
+        public boolean isTimedOut() { return timedOut; }
+        public boolean isCancelled() { return cancelled; }
+        public long getDurationMillis() { return durationMillis; }
+        public long getLineCount() { return lineCount; }
+        public List<String> getTail() { return tail; }
+    }
+
+    /**
+     * Submits a build; the work function runs on the pool and returns the text result
+     */
+    public static synchronized BuildJob submit(String command, Function<BuildJob, String> work) {
+        BuildJob job = new BuildJob(nextJobId++, command);
+        jobs.put(job.getId(), job);
+        job.result = pool.submit(() -> {
+            job.started = true;
+            return work.apply(job);
+        });
+        evictFinishedJobs();
+        return job;
+    }
+
+    public static synchronized BuildJob get(int jobId) {
+        return jobs.get(jobId);
+    }
+
+    public static synchronized List<BuildJob> list() {
+        return new ArrayList<>(jobs.values());
+    }
+
+    /**
+     * Starts a process for the job and waits for it until the deadline.
+     * The output is appended to the log file (if not null) and to the job's ring buffer.
+     */
+    public static ProcessRun run(BuildJob job, ProcessBuilder processBuilder, Path logFile, Duration deadline)
+            throws IOException, InterruptedException {
+        if (job.isCancelled()) {
+            return new ProcessRun(-1, false, true, 0, 0, List.of());
+        }
+        processBuilder.redirectErrorStream(true); // Merge stderr with stdout
+        long start = System.nanoTime();
+        Process process = processBuilder.start();
+        job.process = process;
+        job.output.reset();
+        if (job.isCancelled()) {
+            killTree(process);
+        }
+
+        Thread pump = new Thread(() -> pump(process, logFile, job.output), "maven-output-" + job.getId());
+        pump.setDaemon(true);
+        pump.start();
+
+        boolean finished;
+        try {
+            finished = process.waitFor(deadline.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            killTree(process);
+            throw e;
+        }
+        if (!finished) {
+            killTree(process);
+            process.waitFor(DRAIN_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        pump.join(DRAIN_MILLIS);
+        job.process = null;
+
+        long durationMillis = (System.nanoTime() - start) / 1_000_000;
+        boolean cancelled = job.isCancelled();
+        int exitCode = finished && !cancelled ? process.exitValue() : -1;
+        return new ProcessRun(exitCode, !finished && !cancelled, cancelled, durationMillis,
+                job.output.lineCount(), job.output.tail(TAIL_LINES));
+    }
+
+    /**
+     * Kills the process and all its descendants, children first so none gets re-parented
+     */
+    public static void killTree(Process process) {
+        process.descendants().forEach(ProcessHandle::destroyForcibly);
+        process.destroyForcibly();
+    }
+
+    // Streams the process output in chunks, so even a line without end cannot grow unbounded
+    private static void pump(Process process, Path logFile, OutputBuffer output) {
+        try (Reader reader = new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8);
+             Writer log = logFile == null ? Writer.nullWriter() : Files.newBufferedWriter(logFile, StandardCharsets.UTF_8)) {
+            char[] buffer = new char[8192];
+            StringBuilder line = new StringBuilder();
+            int read;
+            while ((read = reader.read(buffer)) > 0) {
+                log.write(buffer, 0, read);
+                for (int i = 0; i < read; i++) {
+                    char c = buffer[i];
+                    if (c == '\n') {
+                        output.add(line);
+                        line.setLength(0);
+                    } else if (c != '\r' && line.length() < MAX_LINE_CHARS) {
+                        line.append(c);
+                    }
+                }
+            }
+            if (line.length() > 0) {
+                output.add(line);
+            }
+        } catch (IOException e) {
+            // The stream is closed when the process tree is killed
+        }
+    }
+
+    private static void evictFinishedJobs() {
+        long finished = jobs.values().stream().filter(job -> job.result.isDone()).count();
+        Iterator<BuildJob> iterator = jobs.values().iterator();
+        while (finished > MAX_FINISHED_JOBS && iterator.hasNext()) {
+            if (iterator.next().result.isDone()) {
+                iterator.remove();
+                finished--;
+            }
+        }
+    }
+
+    /**
+     * Ring buffer of the last output lines
+     */
+    private static final class OutputBuffer {
+        private final Deque<String> lines = new ArrayDeque<>(TAIL_LINES);
+        private long lineCount = 0;
+
+        synchronized void add(CharSequence line) {
+            if (lines.size() == TAIL_LINES) {
+                lines.removeFirst();
+            }
+            lines.addLast(line.toString());
+            lineCount++;
+        }
+
+        synchronized void reset() {
+            lines.clear();
+            lineCount = 0;
+        }
+
+        synchronized long lineCount() {
+            return lineCount;
+        }
+
+        synchronized List<String> tail(int count) {
+            List<String> all = new ArrayList<>(lines);
+            return all.subList(Math.max(0, all.size() - count), all.size());
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.github.dloiacono.ai.agents.tools;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Process-wide cache of build summaries keyed by a fingerprint of the build inputs:
+ * the normalized Maven command plus the content of every pom.xml, every file below a
+ * src directory and the .mvn configuration. An identical command on an unchanged tree
+ * returns the previous summary without starting Maven; any change to an input yields a
+ * new fingerprint, so stale entries are never hit and simply age out of the LRU.
+ * Dependencies resolved from remote repositories are not part of the fingerprint.
+ * Since a hit skips the build and target is not an input, MavenTool only caches successful
+ * runs of check goals (compile, test and the like), never goals with side effects, and
+ * only returns a hit while the compiled classes are still in target.
+ */
+public class BuildResultCache {
+
+    private static final int MAX_ENTRIES = 32;
+    // Directories that never contain build inputs
+    private static final Set<String> SKIPPED_DIRS = Set.of("target", "node_modules", ".git", ".agent-memory",
+            ".rag-store", ".build-logs");
+
+    /**
+     * A cached build outcome
+     */
+    public static class Entry {
+        private final BuildSummary summary;
+        private final long durationMillis;
+        private final long createdAt;
+
+        Entry(BuildSummary summary, long durationMillis) {
+            this.summary = summary;
+            this.durationMillis = durationMillis;
+            this.createdAt = System.currentTimeMillis();
+        }
+
+        public BuildSummary getSummary() { return summary; }
+        public long getDurationMillis() { return durationMillis; }
+        public long getCreatedAt() { return createdAt; }
+    }
+
+    private static final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+    private static long hits = 0;
+    private static long misses = 0;
+    private static long millisSaved = 0;
+
+    private BuildResultCache() {
+    }
+
+    public static synchronized Entry get(String fingerprint) {
+        Entry entry = entries.get(fingerprint);
+        if (entry == null) {
+            misses++;
+        } else {
+            hits++;
+            millisSaved += entry.getDurationMillis();
+        }
+        return entry;
+    }
+
+    public static synchronized void put(String fingerprint, BuildSummary summary, long durationMillis) {
+        entries.put(fingerprint, new Entry(summary, durationMillis));
+    }
+
+    public static synchronized void clear() {
+        entries.clear();
+    }
+
+    public static synchronized String stats() {
+        return "hits=" + hits + ", misses=" + misses + ", buildTimeSaved=" + millisSaved + "ms, entries=" + entries.size();
+    }
+
+    /**
+     * Computes the fingerprint of a command on the current project tree
+     */
+    public static String fingerprint(Path baseDir, String mavenCommand) throws IOException {
+        List<Path> inputs = new ArrayList<>();
+        Files.walkFileTree(baseDir, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                String name = dir.getFileName() == null ? "" : dir.getFileName().toString();
+                return !dir.equals(baseDir) && SKIPPED_DIRS.contains(name)
+                        ? FileVisitResult.SKIP_SUBTREE
+                        : FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                Path relative = baseDir.relativize(file);
+                if (file.getFileName().toString().equals("pom.xml") || isBelow(relative, "src") || isBelow(relative, ".mvn")) {
+                    inputs.add(relative);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        inputs.sort(null);
+
+        MessageDigest digest = newDigest();
+        update(digest, String.join(" ", mavenCommand.trim().split("\\s+")));
+        byte[] buffer = new byte[8192];
+        for (Path relative : inputs) {
+            Path file = baseDir.resolve(relative);
+            update(digest, relative.toString().replace('\\', '/'));
+            update(digest, Long.toString(Files.size(file)));
+            try (InputStream in = Files.newInputStream(file)) {
+                int read;
+                while ((read = in.read(buffer)) > 0) {
+                    digest.update(buffer, 0, read);
+                }
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest(), 0, 16);
+    }
+
+    private static boolean isBelow(Path relative, String directory) {
+        for (Path name : relative) {
+            if (name.toString().equals(directory)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Separates the fields so that different splits of the same bytes never collide
+    private static void update(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
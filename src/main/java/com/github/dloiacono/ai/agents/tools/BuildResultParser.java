@@ -0,0 +1,288 @@
+package com.github.dloiacono.ai.agents.tools;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Turns raw Maven output into a {@link BuildSummary}.
+ * Compiler errors are taken from the javac lines of the log, test results from the
+ * surefire/failsafe XML reports written during the build, which are more precise than
+ * the console output. Only reports modified after the build started are read, so stale
+ * reports of earlier builds are never mixed in.
+ */
+public class BuildResultParser {
+
+    private static final int MAX_FAILED_TESTS = 20;
+    private static final int MAX_COMPILE_ERRORS = 30;
+    private static final int MAX_BUILD_ERRORS = 5;
+    private static final int MAX_MESSAGE_CHARS = 300;
+    private static final int MAX_REPORT_DEPTH = 6;
+    private static final Set<String> REPORT_DIRS = Set.of("surefire-reports", "failsafe-reports");
+
+    // [ERROR] /abs/path/src/main/java/demo/Foo.java:[12,5] cannot find symbol
+    private static final Pattern COMPILE_ERROR = Pattern.compile("^\\[ERROR\\] (.+?\\.java):\\[(\\d+)(?:,(\\d+))?\\] (.*)$");
+    // Follow-up lines of a compile error, e.g. "  symbol:   variable x"
+    private static final Pattern COMPILE_DETAIL = Pattern.compile("^\\[ERROR\\]\\s+(symbol|location|required|found|reason):\\s*(.*)$");
+    // [ERROR] Tests run: 3, Failures: 1, Errors: 0, Skipped: 0
+    private static final Pattern TEST_TOTALS = Pattern.compile("Tests run: (\\d+), Failures: (\\d+), Errors: (\\d+), Skipped: (\\d+)$");
+    // Maven help boilerplate that follows every failure
+    private static final List<String> BOILERPLATE = List.of("-> [Help", "To see the full stack trace", "Re-run Maven",
+            "For more information about the errors", "[Help 1]", "After correcting the problems", "mvn <args> -rf",
+            "COMPILATION ERROR", "Failures:", "Errors:", "Tests run:", "There are test failures",
+            "Please refer to", "BUILD FAILURE", "<<< FAILURE!", "<<< ERROR!", "Compilation failure");
+
+    private BuildResultParser() {
+    }
+
+    /**
+     * @param lines all output lines, streamed once
+     * @param tail the last output lines, shown when a failure cannot be classified
+     */
+    public static BuildSummary parse(String command, int exitCode, boolean timedOut, Iterable<String> lines,
+                                     List<String> tail, Path baseDir, long buildStartMillis) {
+        BuildSummary summary = new BuildSummary(command, exitCode, timedOut);
+        parseLog(summary, lines, baseDir);
+        parseTestReports(summary, baseDir, buildStartMillis);
+        summary.setOutputTail(tail);
+        return summary;
+    }
+
+    private static void parseLog(BuildSummary summary, Iterable<String> lines, Path baseDir) {
+        Set<String> compileErrors = new LinkedHashSet<>();
+        Set<String> buildErrors = new LinkedHashSet<>();
+        int[] totals = null;
+        String lastError = null;
+
+        for (String line : lines) {
+            Matcher compile = COMPILE_ERROR.matcher(line);
+            if (compile.matches()) {
+                String location = relativize(baseDir, compile.group(1)) + ":" + compile.group(2)
+                        + (compile.group(3) != null ? ":" + compile.group(3) : "");
+                lastError = location + ": " + truncate(compile.group(4));
+                compileErrors.add(lastError);
+                continue;
+            }
+            Matcher detail = COMPILE_DETAIL.matcher(line);
+            if (detail.matches() && lastError != null) {
+                // Maven repeats compile errors, so the details are only attached to the first occurrence
+                if (compileErrors.remove(lastError)) {
+                    lastError = lastError + " (" + detail.group(1) + ": " + detail.group(2).trim() + ")";
+                }
+                compileErrors.add(lastError);
+                continue;
+            }
+            lastError = null;
+
+            Matcher testTotals = TEST_TOTALS.matcher(line);
+            if (testTotals.find()) {
+                // The last totals line of the log is the aggregate of the module
+                totals = new int[] {Integer.parseInt(testTotals.group(1)), Integer.parseInt(testTotals.group(2)),
+                        Integer.parseInt(testTotals.group(3)), Integer.parseInt(testTotals.group(4))};
+                continue;
+            }
+            if (line.startsWith("[ERROR]")) {
+                String message = line.substring("[ERROR]".length()).trim();
+                if (!message.isEmpty() && !isBoilerplate(message) && !message.contains(".java:[")
+                        && !message.matches("^\\S+\\.\\S+:\\d+ .*")) {
+                    buildErrors.add(truncate(message));
+                }
+            }
+        }
+
+        compileErrors.stream().limit(MAX_COMPILE_ERRORS).forEach(summary.getCompileErrors()::add);
+        if (compileErrors.size() > MAX_COMPILE_ERRORS) {
+            summary.getCompileErrors().add("... " + (compileErrors.size() - MAX_COMPILE_ERRORS) + " more compile errors in the full log");
+        }
+        buildErrors.stream().limit(MAX_BUILD_ERRORS).forEach(summary.getBuildErrors()::add);
+        if (totals != null) {
+            summary.setTestTotals(totals[0], totals[1], totals[2], totals[3]);
+        }
+    }
+
+    private static void parseTestReports(BuildSummary summary, Path baseDir, long buildStartMillis) {
+        List<Path> reports = findReports(baseDir, buildStartMillis);
+        if (reports.isEmpty()) {
+            return;
+        }
+        DocumentBuilder builder;
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            builder = factory.newDocumentBuilder();
+        } catch (Exception e) {
+            System.err.println("Warning: Could not create XML parser for test reports: " + e.getMessage());
+            return;
+        }
+
+        int run = 0, failures = 0, errors = 0, skipped = 0;
+        int failedTests = 0;
+        for (Path report : reports) {
+            try {
+                Document document = builder.parse(report.toFile());
+                Element suite = document.getDocumentElement();
+                run += intAttribute(suite, "tests");
+                failures += intAttribute(suite, "failures");
+                errors += intAttribute(suite, "errors");
+                skipped += intAttribute(suite, "skipped");
+
+                NodeList testCases = suite.getElementsByTagName("testcase");
+                for (int i = 0; i < testCases.getLength(); i++) {
+                    Element testCase = (Element) testCases.item(i);
+                    Element problem = firstChild(testCase, "failure", "error");
+                    if (problem == null) {
+                        continue;
+                    }
+                    if (++failedTests > MAX_FAILED_TESTS) {
+                        continue;
+                    }
+                    String className = testCase.getAttribute("classname");
+                    summary.getFailedTests().add(new BuildSummary.FailedTest(
+                            className,
+                            testCase.getAttribute("name"),
+                            problem.getTagName(),
+                            failureMessage(problem),
+                            failureLocation(className, problem.getTextContent())));
+                }
+            } catch (Exception e) {
+                System.err.println("Warning: Could not parse test report " + report + ": " + e.getMessage());
+            }
+        }
+        // The reports are authoritative, the console totals are only a fallback
+        summary.setTestTotals(run, failures, errors, skipped);
+        if (failedTests > MAX_FAILED_TESTS) {
+            summary.getFailedTests().add(new BuildSummary.FailedTest("...", "" + (failedTests - MAX_FAILED_TESTS)
+                    + " more", "failure", "see the full log", null));
+        }
+    }
+
+    private static List<Path> findReports(Path baseDir, long buildStartMillis) {
+        List<Path> reports = new ArrayList<>();
+        if (!Files.isDirectory(baseDir)) {
+            return reports;
+        }
+        try {
+            Files.walkFileTree(baseDir, Set.of(), MAX_REPORT_DEPTH, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                    String name = dir.getFileName() == null ? "" : dir.getFileName().toString();
+                    if (!dir.equals(baseDir) && (name.startsWith(".") || name.equals("node_modules") || name.equals("src"))) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    if (REPORT_DIRS.contains(name) && dir.getParent() != null
+                            && "target".equals(dir.getParent().getFileName().toString())) {
+                        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "TEST-*.xml")) {
+                            for (Path report : stream) {
+                                if (Files.getLastModifiedTime(report).toMillis() >= buildStartMillis) {
+                                    reports.add(report);
+                                }
+                            }
+                        }
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            System.err.println("Warning: Could not scan for test reports: " + e.getMessage());
+        }
+        reports.sort(null);
+        return reports;
+    }
+
+    private static Element firstChild(Element parent, String... names) {
+        for (Node child = parent.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child instanceof Element element) {
+                for (String name : names) {
+                    if (name.equals(element.getTagName())) {
+                        return element;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private static String failureMessage(Element problem) {
+        String message = problem.getAttribute("message");
+        if (message.isBlank()) {
+            // Some failures have no message attribute, the first line of the stack trace names the exception
+            String text = problem.getTextContent().strip();
+            message = text.isEmpty() ? problem.getAttribute("type") : text.lines().findFirst().orElse("");
+        }
+        return truncate(message.replaceAll("\\s+", " ").trim());
+    }
+
+    // The first stack frame inside the test class, e.g. "CalculatorTest.java:42"
+    private static String failureLocation(String className, String stackTrace) {
+        if (className.isEmpty() || stackTrace == null) {
+            return null;
+        }
+        String prefix = "at " + className + ".";
+        for (String line : stackTrace.split("\n")) {
+            String frame = line.trim();
+            if (frame.startsWith(prefix)) {
+                int open = frame.lastIndexOf('(');
+                int close = frame.lastIndexOf(')');
+                if (open >= 0 && close > open) {
+                    return frame.substring(open + 1, close);
+                }
+            }
+        }
+        return null;
+    }
+
+    private static int intAttribute(Element element, String name) {
+        try {
+            return Integer.parseInt(element.getAttribute(name).trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static boolean isBoilerplate(String message) {
+        for (String marker : BOILERPLATE) {
+            if (message.contains(marker)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String relativize(Path baseDir, String file) {
+        try {
+            Path path = Path.of(file).toAbsolutePath().normalize();
+            return path.startsWith(baseDir) ? baseDir.relativize(path).toString() : file;
+        } catch (Exception e) {
+            return file;
+        }
+    }
+
+    private static String truncate(String message) {
+        return message.length() > MAX_MESSAGE_CHARS ? message.substring(0, MAX_MESSAGE_CHARS) + " [...]" : message;
+    }
+}
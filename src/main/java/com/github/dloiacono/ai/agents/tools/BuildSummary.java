@@ -0,0 +1,143 @@
+package com.github.dloiacono.ai.agents.tools;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact, structured outcome of a Maven build: totals, failing tests, compile errors
+ * and other build errors, plus a reference to the full log stored on disk.
+ */
+public class BuildSummary {
+
+    // Number of trailing log lines shown when a failure could not be classified
+    private static final int UNCLASSIFIED_TAIL_LINES = 30;
+
+    /**
+     * A failed or errored test case
+     */
+    public static class FailedTest {
+        private final String className;
+        private final String methodName;
+        private final String kind;
+        private final String message;
+        private final String location;
+
+        public FailedTest(String className, String methodName, String kind, String message, String location) {
+            this.className = className;
+            this.methodName = methodName;
+            this.kind = kind;
+            this.message = message;
+            this.location = location;
+        }
+
+        public String getClassName() { return className; }
+        public String getMethodName() { return methodName; }
+        public String getKind() { return kind; }
+        public String getMessage() { return message; }
+        public String getLocation() { return location; }
+    }
+
+    private final String command;
+    private final int exitCode;
+    private final boolean timedOut;
+    private int testsRun = -1;
+    private int testFailures;
+    private int testErrors;
+    private int testsSkipped;
+    private final List<FailedTest> failedTests = new ArrayList<>();
+    private final List<String> compileErrors = new ArrayList<>();
+    private final List<String> buildErrors = new ArrayList<>();
+    private final List<String> outputTail = new ArrayList<>();
+    private String logReference;
+    private int logLines;
+
+    public BuildSummary(String command, int exitCode, boolean timedOut) {
+        this.command = command;
+        this.exitCode = exitCode;
+        this.timedOut = timedOut;
+    }
+
+    public boolean isSuccess() {
+        return exitCode == 0 && !timedOut;
+    }
+
+    public String getCommand() { return command; }
+    public int getExitCode() { return exitCode; }
+    public boolean isTimedOut() { return timedOut; }
+    public int getTestsRun() { return testsRun; }
+    public int getTestFailures() { return testFailures; }
+    public int getTestErrors() { return testErrors; }
+    public int getTestsSkipped() { return testsSkipped; }
+    public List<FailedTest> getFailedTests() { return failedTests; }
+    public List<String> getCompileErrors() { return compileErrors; }
+    public List<String> getBuildErrors() { return buildErrors; }
+    public String getLogReference() { return logReference; }
+
+    void setTestTotals(int run, int failures, int errors, int skipped) {
+        this.testsRun = run;
+        this.testFailures = failures;
+        this.testErrors = errors;
+        this.testsSkipped = skipped;
+    }
+
+    void setLog(String logReference, int logLines) {
+        this.logReference = logReference;
+        this.logLines = logLines;
+    }
+
+    void setOutputTail(List<String> lines) {
+        outputTail.clear();
+        outputTail.addAll(lines.subList(Math.max(0, lines.size() - UNCLASSIFIED_TAIL_LINES), lines.size()));
+    }
+
+    /**
+     * Renders the summary as a few hundred tokens of plain text for the model
+     */
+    public String format(String timing) {
+        StringBuilder result = new StringBuilder();
+        if (timedOut) {
+            result.append("BUILD TIMED OUT");
+        } else {
+            result.append(isSuccess() ? "BUILD SUCCESS" : "BUILD FAILURE (exit code " + exitCode + ")");
+        }
+        result.append(timing).append("\n");
+        result.append("Command: mvn ").append(command).append("\n");
+        if (testsRun >= 0) {
+            result.append("Tests: ").append(testsRun).append(" run, ").append(testFailures).append(" failed, ")
+                  .append(testErrors).append(" errors, ").append(testsSkipped).append(" skipped\n");
+        }
+        if (!failedTests.isEmpty()) {
+            result.append("Failed tests:\n");
+            for (FailedTest test : failedTests) {
+                result.append("  ").append(test.getClassName()).append("#").append(test.getMethodName());
+                if (test.getLocation() != null) {
+                    result.append(" (").append(test.getLocation()).append(")");
+                }
+                result.append(" [").append(test.getKind()).append("]: ").append(test.getMessage()).append("\n");
+            }
+        }
+        if (!compileErrors.isEmpty()) {
+            result.append("Compile errors:\n");
+            for (String error : compileErrors) {
+                result.append("  ").append(error).append("\n");
+            }
+        }
+        if (!buildErrors.isEmpty()) {
+            result.append("Errors:\n");
+            for (String error : buildErrors) {
+                result.append("  ").append(error).append("\n");
+            }
+        }
+        if (!isSuccess() && failedTests.isEmpty() && compileErrors.isEmpty() && buildErrors.isEmpty() && !outputTail.isEmpty()) {
+            result.append("Last ").append(outputTail.size()).append(" lines of output:\n");
+            for (String line : outputTail) {
+                result.append("  ").append(line).append("\n");
+            }
+        }
+        if (logReference != null) {
+            result.append("Full log: ").append(logReference).append(" (").append(logLines)
+                  .append(" lines) - use readBuildLog to see details\n");
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,323 @@
+package com.github.dloiacono.ai.agents.tools;
+
+import dev.langchain4j.agent.tool.Tool;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Fast compile check of the generated project with the in-process javax.tools compiler.
+ * Only the sources changed since the last Maven compile are compiled, together with the
+ * compiled classes that depend on them, against the project classpath resolved once per
+ * pom.xml content with dependency:build-classpath. The classes are written to a temporary
+ * directory, so the Maven target directory and its incremental state are left untouched.
+ * Annotation processors found on the dependency classpath (e.g. Lombok) run as in Maven;
+ * processors configured only in the compiler plugin's annotationProcessorPaths cannot be
+ * run here, so such projects are reported as unsupported instead of failing with errors.
+ */
+public class CompileCheckTool {
+
+    private final static String BASE_DIR = "./generated-project";
+    private final static String CLASSPATH_FILE = ".agent-memory/compile_classpath.txt";
+    private final static Duration CLASSPATH_DEADLINE = Duration.ofMinutes(3);
+    // A failed resolution is retried when the pom changes, or for the same pom after this back-off
+    private final static Duration CLASSPATH_RETRY_BACKOFF = Duration.ofMinutes(10);
+    private final static int MAX_DIAGNOSTICS = 30;
+    private final static List<String> SOURCE_ROOTS = List.of("src/main/java", "src/test/java");
+    private final static Pattern RELEASE = Pattern.compile(
+            "<maven\\.compiler\\.(?:release|source)>\\s*([0-9.]+)\\s*</maven\\.compiler\\.(?:release|source)>");
+
+    // The compiler is reused across checks so that it stays loaded and JIT-compiled
+    private static final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+
+    private final Path baseDir;
+    private final TestImpactAnalyzer dependencyAnalyzer;
+    // Classpath resolved for the pom.xml content with the given hash
+    private String classpathPomHash;
+    private String classpath;
+    // Last failed resolution: the pom hash, when it happened and why
+    private String failedPomHash;
+    private long failedAtMillis;
+    private String failure;
+    // The file manager keeps the dependency jars open and indexed between checks
+    private StandardJavaFileManager fileManager;
+
+    public CompileCheckTool() {
+        this("");
+    }
+
+    /**
+     * Creates a tool that checks the Maven project in the given workspace sub-tree
+     * @param workspaceSubtree directory relative to the project root, or empty for the project root
+     */
+    public CompileCheckTool(String workspaceSubtree) {
+        this.baseDir = Paths.get(BASE_DIR).toAbsolutePath().normalize().resolve(workspaceSubtree).normalize();
+        this.dependencyAnalyzer = new TestImpactAnalyzer(baseDir);
+    }
+
+    @Tool("Quickly checks in process whether the changed Java sources compile, without running Maven. " +
+          "Returns compile errors with file:line:column. Use it after editing code and before running the Maven build.")
+    public synchronized String checkCompile() {
+        if (compiler == null) {
+            return "Error: No Java compiler available in this runtime, use executeMaven('compile') instead";
+        }
+        long start = System.nanoTime();
+        Path outputDir = null;
+        try {
+            Path pom = baseDir.resolve("pom.xml");
+            if (!Files.exists(pom)) {
+                return "Error: No pom.xml in the project directory";
+            }
+            List<Path> sources = sourcesToCompile();
+            if (sources.isEmpty()) {
+                return "COMPILE OK: no sources changed since the last Maven compile";
+            }
+            String pomContent = Files.readString(pom);
+            if (pomContent.contains("<annotationProcessorPaths>")) {
+                return "COMPILE CHECK UNSUPPORTED: the pom.xml configures annotation processors in annotationProcessorPaths, "
+                        + "which the fast check cannot run; use executeMaven('compile') instead";
+            }
+            String classpathNote = resolveClasspath(pomContent);
+
+            outputDir = Files.createTempDirectory("compile-check");
+            List<String> options = new ArrayList<>(List.of(
+                    "-d", outputDir.toString(),
+                    "-classpath", compileClasspath(),
+                    "-sourcepath", sourcepath(),
+                    "-g:none", "-nowarn", "-encoding", "UTF-8"));
+            if (Runtime.version().feature() >= 21) {
+                // Newer compilers no longer run processors found on the classpath unless asked to
+                options.add("-proc:full");
+            }
+            Matcher release = RELEASE.matcher(pomContent);
+            if (release.find()) {
+                String version = release.group(1).startsWith("1.") ? release.group(1).substring(2) : release.group(1);
+                options.add("--release");
+                options.add(version);
+            }
+
+            DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+            Iterable<? extends JavaFileObject> units = fileManager.getJavaFileObjectsFromPaths(sources);
+            boolean success = compiler.getTask(null, fileManager, diagnostics, options, null, units).call();
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            return format(success, sources.size(), millis, diagnostics.getDiagnostics(), classpathNote);
+        } catch (IOException | RuntimeException e) {
+            return "Error during compile check: " + e.getMessage();
+        } finally {
+            deleteQuietly(outputDir);
+        }
+    }
+
+    /**
+     * Sources newer than their class in target, plus the sources of all compiled classes depending on them.
+     * Without previous Maven output every source is compiled.
+     */
+    private List<Path> sourcesToCompile() throws IOException {
+        List<Path> allSources = new ArrayList<>();
+        Set<String> changedClasses = new HashSet<>();
+        for (String root : SOURCE_ROOTS) {
+            Path sourceRoot = baseDir.resolve(root);
+            if (!Files.isDirectory(sourceRoot)) {
+                continue;
+            }
+            Path classesDir = baseDir.resolve(root.startsWith("src/main") ? "target/classes" : "target/test-classes");
+            try (Stream<Path> stream = Files.walk(sourceRoot)) {
+                for (Path source : stream.filter(path -> path.toString().endsWith(".java")).collect(Collectors.toList())) {
+                    allSources.add(source);
+                    String relative = sourceRoot.relativize(source).toString().replace('\\', '/');
+                    String className = relative.substring(0, relative.length() - ".java".length());
+                    Path classFile = classesDir.resolve(className + ".class");
+                    if (!Files.exists(classFile)
+                            || Files.getLastModifiedTime(source).compareTo(Files.getLastModifiedTime(classFile)) > 0) {
+                        changedClasses.add(className.replace('/', '.'));
+                    }
+                }
+            }
+        }
+        if (changedClasses.isEmpty() || !Files.isDirectory(baseDir.resolve("target/classes"))) {
+            return changedClasses.isEmpty() ? List.of() : allSources;
+        }
+
+        Set<String> affected = dependencyAnalyzer.dependentsOf(changedClasses, null);
+        List<Path> sources = new ArrayList<>();
+        for (String root : SOURCE_ROOTS) {
+            for (String className : affected) {
+                Path source = baseDir.resolve(root).resolve(className.replace('.', '/') + ".java");
+                if (Files.exists(source)) {
+                    sources.add(source);
+                }
+            }
+        }
+        return sources;
+    }
+
+    /**
+     * Resolves the dependency classpath when the pom changed, and describes where it came from
+     */
+    private String resolveClasspath(String pomContent) throws IOException {
+        String pomHash = FileContentCache.hash(pomContent);
+        if (pomHash.equals(classpathPomHash)) {
+            return "cached classpath";
+        }
+        Path classpathFile = baseDir.resolve(CLASSPATH_FILE);
+        if (Files.exists(classpathFile)) {
+            List<String> lines = Files.readAllLines(classpathFile);
+            if (lines.size() == 2 && lines.get(0).equals(pomHash)) {
+                useClasspath(pomHash, lines.get(1));
+                return "cached classpath";
+            }
+        }
+
+        if (pomHash.equals(failedPomHash) && System.currentTimeMillis() - failedAtMillis < CLASSPATH_RETRY_BACKOFF.toMillis()) {
+            return "dependency classpath could not be resolved (" + failure + "), checked against project classes only";
+        }
+
+        Files.createDirectories(classpathFile.getParent());
+        Path outputFile = classpathFile.resolveSibling("compile_classpath.tmp");
+        ProcessBuilder processBuilder = new ProcessBuilder("mvn", "-q", "dependency:build-classpath",
+                "-Dmdep.outputFile=" + outputFile);
+        processBuilder.directory(baseDir.toFile());
+        BuildExecutor.BuildJob job = BuildExecutor.submit("dependency:build-classpath", j -> {
+            try {
+                BuildExecutor.ProcessRun run = BuildExecutor.run(j, processBuilder, null, CLASSPATH_DEADLINE);
+                return run.getExitCode() == 0 ? "" : String.join("\n", run.getTail());
+            } catch (IOException e) {
+                return e.getMessage();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return "interrupted";
+            }
+        });
+        String error;
+        try {
+            error = job.await(CLASSPATH_DEADLINE.toMillis() + 10_000);
+        } catch (InterruptedException e) {
+            job.cancel();
+            Thread.currentThread().interrupt();
+            error = "interrupted";
+        }
+        if (error == null || !error.isEmpty() || !Files.exists(outputFile)) {
+            // Still useful for projects without dependencies, and the errors will name missing ones.
+            // No pom hash is recorded as resolved; the failure is, so checks don't wait for Maven again
+            // until the pom changes or the back-off has passed
+            useClasspath(null, "");
+            failedPomHash = pomHash;
+            failedAtMillis = System.currentTimeMillis();
+            failure = firstLine(error);
+            return "dependency classpath could not be resolved (" + failure + "), checked against project classes only";
+        }
+        String resolved = Files.readString(outputFile, StandardCharsets.UTF_8).trim();
+        Files.deleteIfExists(outputFile);
+        Files.writeString(classpathFile, pomHash + "\n" + resolved + "\n");
+        useClasspath(pomHash, resolved);
+        failedPomHash = null;
+        return "classpath resolved from pom.xml";
+    }
+
+    private void useClasspath(String pomHash, String resolved) throws IOException {
+        if (fileManager != null) {
+            fileManager.close();
+        }
+        fileManager = compiler.getStandardFileManager(null, Locale.ROOT, StandardCharsets.UTF_8);
+        classpathPomHash = pomHash;
+        classpath = resolved;
+    }
+
+    // Previously compiled project classes resolve the types whose sources are not recompiled
+    private String compileClasspath() {
+        List<String> entries = new ArrayList<>();
+        entries.add(baseDir.resolve("target/classes").toString());
+        entries.add(baseDir.resolve("target/test-classes").toString());
+        if (!classpath.isEmpty()) {
+            entries.add(classpath);
+        }
+        return String.join(File.pathSeparator, entries);
+    }
+
+    private String sourcepath() {
+        return SOURCE_ROOTS.stream()
+                .map(root -> baseDir.resolve(root).toString())
+                .collect(Collectors.joining(File.pathSeparator));
+    }
+
+    private String format(boolean success, int sourceCount, long millis,
+                          List<Diagnostic<? extends JavaFileObject>> diagnostics, String classpathNote) {
+        List<String> errors = new ArrayList<>();
+        int warnings = 0;
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics) {
+            if (diagnostic.getKind() != Diagnostic.Kind.ERROR) {
+                warnings++;
+                continue;
+            }
+            String location = "";
+            if (diagnostic.getSource() != null) {
+                Path file = Paths.get(diagnostic.getSource().toUri());
+                location = (file.startsWith(baseDir) ? baseDir.relativize(file) : file) + ":"
+                        + diagnostic.getLineNumber() + ":" + diagnostic.getColumnNumber() + ": ";
+            }
+            // "cannot find symbol\n  symbol: variable x" becomes "cannot find symbol (symbol: variable x)"
+            List<String> lines = diagnostic.getMessage(Locale.ROOT).lines()
+                    .map(line -> line.trim().replaceAll("\\s+", " "))
+                    .filter(line -> !line.isEmpty())
+                    .collect(Collectors.toList());
+            String message = lines.isEmpty() ? "" : lines.get(0);
+            if (lines.size() > 1) {
+                message += " (" + String.join("; ", lines.subList(1, lines.size())) + ")";
+            }
+            errors.add(location + message);
+        }
+
+        StringBuilder result = new StringBuilder();
+        result.append(success ? "COMPILE OK" : "COMPILE ERRORS (" + errors.size() + ")")
+              .append(": ").append(sourceCount).append(" sources checked in ").append(millis).append("ms, ")
+              .append(classpathNote);
+        if (warnings > 0) {
+            result.append(", ").append(warnings).append(" warnings");
+        }
+        result.append("\n");
+        errors.stream().limit(MAX_DIAGNOSTICS).forEach(error -> result.append("  ").append(error).append("\n"));
+        if (errors.size() > MAX_DIAGNOSTICS) {
+            result.append("  ... ").append(errors.size() - MAX_DIAGNOSTICS).append(" more errors\n");
+        }
+        return result.toString();
+    }
+
+    private static String firstLine(String text) {
+        if (text == null) {
+            return "timed out";
+        }
+        return text.lines().filter(line -> !line.isBlank()).findFirst().orElse("unknown error");
+    }
+
+    private static void deleteQuietly(Path dir) {
+        if (dir == null) {
+            return;
+        }
+        try (Stream<Path> stream = Files.walk(dir)) {
+            stream.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            System.err.println("Warning: Failed to delete compile check output " + dir + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.github.dloiacono.ai.agents.tools;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-wide cache of decoded file contents shared by all FileSystemTool instances.
+ * Entries are validated against the file's last-modified time and size on every read,
+ * and the cache is bounded by the total number of cached bytes (least recently used first out).
+ */
+public class FileContentCache {
+
+    private static final long MAX_CACHED_BYTES = 64L * 1024 * 1024;
+    private static final int MAX_FINGERPRINTS = 100_000;
+
+    private static final Map<Path, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private static long cachedBytes = 0;
+    // Content hashes outlive evicted contents, so unchanged writes can be detected without a read
+    private static final Map<Path, Fingerprint> fingerprints = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, Fingerprint> eldest) {
+            return size() > MAX_FINGERPRINTS;
+        }
+    };
+
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+    private static final AtomicLong bytesSaved = new AtomicLong();
+    private static final AtomicLong evictions = new AtomicLong();
+
+    private FileContentCache() {
+    }
+
+    private static final class Entry {
+        private final String content;
+        private final FileTime lastModified;
+        private final long size;
+
+        private Entry(String content, FileTime lastModified, long size) {
+            this.content = content;
+            this.lastModified = lastModified;
+            this.size = size;
+        }
+    }
+
+    private static final class Fingerprint {
+        private final String hash;
+        private final FileTime lastModified;
+        private final long size;
+
+        private Fingerprint(String hash, FileTime lastModified, long size) {
+            this.hash = hash;
+            this.lastModified = lastModified;
+            this.size = size;
+        }
+    }
+
+    /**
+     * Returns the file content, from the cache when the file is unchanged on disk
+     */
+    public static String read(Path path) throws IOException {
+        Path key = path.toAbsolutePath().normalize();
+        BasicFileAttributes attrs = Files.readAttributes(key, BasicFileAttributes.class);
+        String cached = lookup(key, attrs);
+        if (cached != null) {
+            hits.incrementAndGet();
+            bytesSaved.addAndGet(attrs.size());
+            return cached;
+        }
+        misses.incrementAndGet();
+        String content = Files.readString(key);
+        store(key, content, attrs);
+        return content;
+    }
+
+    /**
+     * Returns the cached content only if it is still fresh, without reading the file
+     */
+    public static String getIfFresh(Path path) {
+        Path key = path.toAbsolutePath().normalize();
+        try {
+            return lookup(key, Files.readAttributes(key, BasicFileAttributes.class));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Records content that was just written to disk, so the next read is a hit
+     */
+    public static void put(Path path, String content) {
+        Path key = path.toAbsolutePath().normalize();
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(key, BasicFileAttributes.class);
+            // Guard against another writer changing the file between our write and the stat
+            if (content.getBytes(StandardCharsets.UTF_8).length != attrs.size()) {
+                invalidate(key);
+                return;
+            }
+            store(key, content, attrs);
+        } catch (IOException e) {
+            invalidate(key);
+        }
+    }
+
+    /**
+     * Returns the hash of the file content if it is known and the file is unchanged on disk
+     */
+    public static String getHashIfFresh(Path path) {
+        Path key = path.toAbsolutePath().normalize();
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(key, BasicFileAttributes.class);
+            synchronized (FileContentCache.class) {
+                Fingerprint fingerprint = fingerprints.get(key);
+                if (fingerprint != null && fingerprint.size == attrs.size()
+                        && fingerprint.lastModified.equals(attrs.lastModifiedTime())) {
+                    return fingerprint.hash;
+                }
+                return null;
+            }
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Short SHA-256 based hash of a text content
+     */
+    public static String hash(String content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    public static synchronized void invalidate(Path path) {
+        fingerprints.remove(path.toAbsolutePath().normalize());
+        Entry removed = entries.remove(path.toAbsolutePath().normalize());
+        if (removed != null) {
+            cachedBytes -= removed.size;
+        }
+    }
+
+    public static synchronized void clear() {
+        entries.clear();
+        fingerprints.clear();
+        cachedBytes = 0;
+    }
+
+    public static long getHits() { return hits.get(); }
+    public static long getMisses() { return misses.get(); }
+    public static long getBytesSaved() { return bytesSaved.get(); }
+    public static long getEvictions() { return evictions.get(); }
+
+    public static synchronized long getCachedBytes() {
+        return cachedBytes;
+    }
+
+    public static double getHitRate() {
+        long total = hits.get() + misses.get();
+        return total == 0 ? 0.0 : (double) hits.get() / total;
+    }
+
+    /**
+     * One-line summary of the cache statistics
+     */
+    public static String stats() {
+        return String.format("hits=%d, misses=%d, hitRate=%.1f%%, bytesSaved=%d, cachedBytes=%d, evictions=%d",
+                getHits(), getMisses(), getHitRate() * 100, getBytesSaved(), getCachedBytes(), getEvictions());
+    }
+
+    private static synchronized String lookup(Path key, BasicFileAttributes attrs) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.size != attrs.size() || !entry.lastModified.equals(attrs.lastModifiedTime())) {
+            entries.remove(key);
+            cachedBytes -= entry.size;
+            return null;
+        }
+        return entry.content;
+    }
+
+    private static synchronized void store(Path key, String content, BasicFileAttributes attrs) {
+        fingerprints.put(key, new Fingerprint(hash(content), attrs.lastModifiedTime(), attrs.size()));
+        if (attrs.size() > MAX_CACHED_BYTES) {
+            Entry removed = entries.remove(key);
+            if (removed != null) {
+                cachedBytes -= removed.size;
+            }
+            return;
+        }
+        Entry previous = entries.put(key, new Entry(content, attrs.lastModifiedTime(), attrs.size()));
+        if (previous != null) {
+            cachedBytes -= previous.size;
+        }
+        cachedBytes += attrs.size();
+
+        Iterator<Map.Entry<Path, Entry>> eldest = entries.entrySet().iterator();
+        while (cachedBytes > MAX_CACHED_BYTES && eldest.hasNext()) {
+            cachedBytes -= eldest.next().getValue().size;
+            eldest.remove();
+            evictions.incrementAndGet();
+        }
+    }
+}
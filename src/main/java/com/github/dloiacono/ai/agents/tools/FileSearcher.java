@@ -0,0 +1,139 @@
+package com.github.dloiacono.ai.agents.tools;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Parallel regex search over the non-ignored text files of the project.
+ * Files are streamed line by line through buffered file channels, so no file is loaded
+ * whole into memory, and the scan stops as soon as the requested number of matches is found.
+ */
+public class FileSearcher {
+
+    private static final int MAX_LINE_CHARS = 300;
+
+    private final Path baseDir;
+    private final GitignoreMatcher gitignoreMatcher;
+
+    public FileSearcher(Path baseDir, GitignoreMatcher gitignoreMatcher) {
+        this.baseDir = baseDir;
+        this.gitignoreMatcher = gitignoreMatcher;
+    }
+
+    /**
+     * A matching line together with its surrounding context lines
+     */
+    public static class Hit {
+        private final String path;
+        private final int lineNumber;
+        private final List<String> before;
+        private final String line;
+        private final List<String> after = new ArrayList<>();
+
+        Hit(String path, int lineNumber, List<String> before, String line) {
+            this.path = path;
+            this.lineNumber = lineNumber;
+            this.before = before;
+            this.line = line;
+        }
+
+        public String getPath() { return path; }
+        public int getLineNumber() { return lineNumber; }
+        public List<String> getBefore() { return before; }
+        public String getLine() { return line; }
+        public List<String> getAfter() { return after; }
+    }
+
+    /**
+     * Searches all files whose relative path matches the glob (all files if the glob is blank).
+     * A glob without a slash, such as "*.java", is matched against the file name.
+     */
+    public List<Hit> search(Pattern pattern, String glob, int maxMatches, int contextLines) throws IOException {
+        PathMatcher matcher = glob == null || glob.isBlank()
+                ? null
+                : FileSystems.getDefault().getPathMatcher("glob:" + glob.trim());
+        boolean matchFileName = glob != null && !glob.contains("/");
+
+        List<Path> files = gitignoreMatcher.listFiles().stream()
+                .filter(path -> {
+                    if (matcher == null) {
+                        return true;
+                    }
+                    Path relative = baseDir.relativize(path);
+                    return matcher.matches(relative) || (matchFileName && matcher.matches(relative.getFileName()));
+                })
+                .collect(Collectors.toList());
+
+        AtomicInteger found = new AtomicInteger();
+        List<Hit> hits = files.parallelStream()
+                .filter(path -> found.get() < maxMatches && !FileSystemTool.isBinary(path))
+                .flatMap(path -> searchFile(path, pattern, maxMatches, contextLines, found).stream())
+                .collect(Collectors.toList());
+
+        hits.sort((a, b) -> a.getPath().equals(b.getPath())
+                ? Integer.compare(a.getLineNumber(), b.getLineNumber())
+                : a.getPath().compareTo(b.getPath()));
+        return hits.size() > maxMatches ? new ArrayList<>(hits.subList(0, maxMatches)) : hits;
+    }
+
+    private List<Hit> searchFile(Path path, Pattern pattern, int maxMatches, int contextLines, AtomicInteger found) {
+        String relativePath = baseDir.relativize(path).toString();
+        List<Hit> hits = new ArrayList<>();
+        Deque<String> previous = new ArrayDeque<>(contextLines + 1);
+        List<Hit> awaitingContext = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+             BufferedReader reader = new BufferedReader(Channels.newReader(channel,
+                     StandardCharsets.UTF_8.newDecoder().onMalformedInput(CodingErrorAction.REPORT), -1))) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                String shown = line.length() > MAX_LINE_CHARS ? line.substring(0, MAX_LINE_CHARS) + " [...]" : line;
+
+                for (Hit hit : awaitingContext) {
+                    hit.getAfter().add(shown);
+                }
+                awaitingContext.removeIf(hit -> hit.getAfter().size() >= contextLines);
+
+                if (pattern.matcher(line).find()) {
+                    if (found.getAndIncrement() >= maxMatches) {
+                        break;
+                    }
+                    Hit hit = new Hit(relativePath, lineNumber, new ArrayList<>(previous), shown);
+                    hits.add(hit);
+                    if (contextLines > 0) {
+                        awaitingContext.add(hit);
+                    }
+                } else if (found.get() >= maxMatches && awaitingContext.isEmpty()) {
+                    break;
+                }
+
+                if (contextLines > 0) {
+                    if (previous.size() == contextLines) {
+                        previous.removeFirst();
+                    }
+                    previous.addLast(shown);
+                }
+            }
+        } catch (UncheckedIOException | IOException e) {
+            // Undecodable (non UTF-8) or unreadable files keep the hits found so far
+        }
+        return hits;
+    }
+}
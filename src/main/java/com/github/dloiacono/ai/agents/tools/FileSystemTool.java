@@ -3,131 +3,149 @@ package com.github.dloiacono.ai.agents.tools;
 import com.github.dloiacono.ai.agents.rag.SimpleRAGStore;
 import dev.langchain4j.agent.tool.P;
 import dev.langchain4j.agent.tool.Tool;
+import dev.langchain4j.model.output.structured.Description;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFileAttributeView;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 public class FileSystemTool {
 
+    /**
+     * A single file of a batched write
+     */
+    public static class FileWrite {
+        @Description("The relative path to the file to write")
+        public String path;
+        @Description("The full content to write to the file")
+        public String content;
+
+        public FileWrite() {
+        }
+
+        public FileWrite(String path, String content) {
+            this.path = path;
+            this.content = content;
+        }
+    }
+
     private final static String  BASE_DIR = "./generated-project";
+    private final static int DEFAULT_PAGE_SIZE = 20;
+    private final static int DEFAULT_TOKEN_BUDGET = 8000;
+    // Rough chars-per-token ratio used to turn a token budget into a byte budget
+    private final static int BYTES_PER_TOKEN = 4;
+    private final static int BINARY_SNIFF_BYTES = 8192;
+    private final static int DEFAULT_MAX_MATCHES = 50;
+    private final static int MAX_CONTEXT_LINES = 5;
+    private final static Set<String> BINARY_EXTENSIONS = Set.of(
+            "class", "jar", "war", "ear", "zip", "gz", "tar", "7z", "png", "jpg", "jpeg", "gif", "ico",
+            "bmp", "webp", "pdf", "woff", "woff2", "ttf", "eot", "otf", "exe", "dll", "so", "dylib", "bin", "onnx");
     private final Path baseDir;
-    private final List<Pattern> gitignorePatterns;
+    // Writes are limited to this directory, the whole project stays readable
+    private final Path writableDir;
+    private final GitignoreMatcher gitignoreMatcher;
+    private final FileSearcher fileSearcher;
+    private final WorkspaceJournal journal;
 
     public FileSystemTool() {
+        this("");
+    }
+
+    /**
+     * Creates a tool that reads the whole project but only writes inside the given workspace sub-tree,
+     * so that agents working in parallel cannot overwrite each other's files
+     * @param workspaceSubtree directory relative to the project root, or empty for the whole project
+     */
+    public FileSystemTool(String workspaceSubtree) {
         this.baseDir = Paths.get(BASE_DIR).toAbsolutePath().normalize();
+        this.writableDir = baseDir.resolve(workspaceSubtree).normalize();
+        if (!writableDir.startsWith(baseDir)) {
+            throw new IllegalArgumentException("Workspace sub-tree outside the project: " + workspaceSubtree);
+        }
         try {
-            Files.createDirectories(baseDir);
+            Files.createDirectories(writableDir);
         }  catch (IOException e) {
-            throw new RuntimeException("Failed to create base directory: " + baseDir, e);
+            throw new RuntimeException("Failed to create base directory: " + writableDir, e);
         }
-        // Load gitignore patterns once during construction
-        this.gitignorePatterns = loadGitignorePatterns();
+        // Rules are compiled lazily and reloaded whenever a .gitignore file changes
+        this.gitignoreMatcher = new GitignoreMatcher(baseDir);
+        this.fileSearcher = new FileSearcher(baseDir, gitignoreMatcher);
+        this.journal = WorkspaceJournal.forProject(baseDir);
     }
 
-    // Helper method to load gitignore patterns
-    private List<Pattern> loadGitignorePatterns() {
-        List<Pattern> patterns = new ArrayList<>();
-        Path gitignoreFile = baseDir.resolve(".gitignore");
-        
-        if (Files.exists(gitignoreFile)) {
-            try {
-                List<String> lines = Files.readAllLines(gitignoreFile);
-                for (String line : lines) {
-                    line = line.trim();
-                    // Skip empty lines and comments
-                    if (!line.isEmpty() && !line.startsWith("#")) {
-                        patterns.add(gitignorePatternToRegex(line));
-                    }
+    // Lists all non-ignored regular files, sorted by relative path
+    private List<Path> listCandidateFiles() throws IOException {
+        return gitignoreMatcher.listFiles();
+    }
+
+    // Detects binary files by extension first, then by looking for NUL bytes in the first block
+    static boolean isBinary(Path path) {
+        if (hasBinaryExtension(path)) {
+            return true;
+        }
+        try (InputStream in = Files.newInputStream(path)) {
+            byte[] buffer = in.readNBytes(BINARY_SNIFF_BYTES);
+            for (byte b : buffer) {
+                if (b == 0) {
+                    return true;
                 }
-            } catch (IOException e) {
-                // If we can't read .gitignore, continue without filtering
-            }
-        }
-        
-        return patterns;
-    }
-
-    // Convert gitignore pattern to regex pattern
-    private Pattern gitignorePatternToRegex(String gitignorePattern) {
-        StringBuilder regex = new StringBuilder();
-        
-        // Handle directory patterns (ending with /)
-        boolean isDirectory = gitignorePattern.endsWith("/");
-        if (isDirectory) {
-            gitignorePattern = gitignorePattern.substring(0, gitignorePattern.length() - 1);
-        }
-        
-        // Handle patterns starting with /
-        boolean isAbsolute = gitignorePattern.startsWith("/");
-        if (isAbsolute) {
-            gitignorePattern = gitignorePattern.substring(1);
-            regex.append("^");
-        }
-        
-        // Convert gitignore wildcards to regex
-        for (int i = 0; i < gitignorePattern.length(); i++) {
-            char c = gitignorePattern.charAt(i);
-            switch (c) {
-                case '*':
-                    if (i + 1 < gitignorePattern.length() && gitignorePattern.charAt(i + 1) == '*') {
-                        // ** matches any number of directories
-                        regex.append(".*");
-                        i++; // skip next *
-                    } else {
-                        // * matches anything except /
-                        regex.append("[^/]*");
-                    }
-                    break;
-                case '?':
-                    regex.append("[^/]");
-                    break;
-                case '.':
-                case '(':
-                case ')':
-                case '+':
-                case '{':
-                case '}':
-                case '^':
-                case '$':
-                case '|':
-                case '\\':
-                    regex.append("\\").append(c);
-                    break;
-                default:
-                    regex.append(c);
             }
+            return false;
+        } catch (IOException e) {
+            return true;
         }
-        
-        if (isDirectory) {
-            regex.append("(/.*)?$");
-        } else if (!isAbsolute) {
-            regex.insert(0, "(^|.*/)");
-            regex.append("(/.*)?$");
-        } else {
-            regex.append("(/.*)?$");
+    }
+
+    // Cheap check without reading the file, for listings that must not open every file
+    static boolean hasBinaryExtension(Path path) {
+        String fileName = path.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        return dot >= 0 && BINARY_EXTENSIONS.contains(fileName.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    private long sizeOf(Path path) {
+        try {
+            return Files.size(path);
+        } catch (IOException e) {
+            return -1;
         }
-        
-        return Pattern.compile(regex.toString());
     }
 
-    // Check if a path should be ignored based on gitignore patterns
-    private boolean shouldIgnore(String relativePath, List<Pattern> gitignorePatterns) {
-        for (Pattern pattern : gitignorePatterns) {
-            if (pattern.matcher(relativePath).matches()) {
-                return true;
+    // Appends a single file section in the same format used by listProjectFiles
+    private void appendFileContent(StringBuilder result, String relativePath, Path path) {
+        result.append("=== ").append(relativePath).append(" ===\n");
+        try {
+            String content = FileContentCache.read(path);
+            if (content.trim().isEmpty()) {
+                result.append("[EMPTY FILE]\n");
+            } else {
+                result.append(content).append("\n");
             }
+        } catch (IOException e) {
+            result.append("[ERROR READING FILE: ").append(e.getMessage()).append("]\n");
         }
-        return false;
+        result.append("\n");
     }
 
     // Helper to resolve relative paths safely
@@ -138,6 +156,16 @@ public class FileSystemTool {
         }
         return resolved;
     }
+
+    // Helper to resolve relative paths of files to be modified
+    private Path resolveWritable(String relativePath) throws IOException {
+        Path resolved = resolve(relativePath);
+        if (!resolved.startsWith(writableDir)) {
+            throw new IOException("Writes are limited to the workspace sub-tree " + baseDir.relativize(writableDir)
+                    + ": " + relativePath);
+        }
+        return resolved;
+    }
     
     // Helper method to determine the current agent ID for indexing purposes
     private String getCurrentAgentId() {
@@ -154,6 +182,139 @@ public class FileSystemTool {
         return "unknown";
     }
 
+    // Writes content next to the target under a temporary name, so it can be committed with a rename.
+    // The rename replaces the target's permissions with the temporary file's, so those of an existing
+    // target are copied over (keeping e.g. the exec bit of mvnw).
+    private Path writeTemp(Path path, String content) throws IOException {
+        Files.createDirectories(path.getParent());
+        Path temp = createSibling(path, ".tmp");
+        try {
+            if (Files.exists(path) && Files.getFileAttributeView(path, PosixFileAttributeView.class) != null) {
+                Files.setPosixFilePermissions(temp, Files.getPosixFilePermissions(path));
+            }
+            Files.writeString(temp, content);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        return temp;
+    }
+
+    // Files.createTempFile makes owner-only files; a plain create gives new files the usual umask default
+    private static Path createSibling(Path path, String suffix) throws IOException {
+        while (true) {
+            Path candidate = path.resolveSibling("." + path.getFileName() + "."
+                    + Long.toUnsignedString(ThreadLocalRandom.current().nextLong()) + suffix);
+            try {
+                return Files.createFile(candidate);
+            } catch (FileAlreadyExistsException e) {
+                // Taken by a concurrent write, try another name
+            }
+        }
+    }
+
+    // Creates the missing parent directories of a path, recording them deepest first so they can be removed again
+    private void createParents(Path path, List<Path> createdDirs) throws IOException {
+        List<Path> missing = new ArrayList<>();
+        for (Path dir = path.getParent(); dir != null && !Files.exists(dir); dir = dir.getParent()) {
+            missing.add(dir);
+        }
+        Files.createDirectories(path.getParent());
+        createdDirs.addAll(0, missing);
+    }
+
+    // Copies an existing file next to itself, so a failed batch can put it back
+    private Path backup(Path path) throws IOException {
+        Path backup = Files.createTempFile(path.getParent(), "." + path.getFileName() + ".", ".bak");
+        try {
+            Files.copy(path, backup, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+        } catch (IOException e) {
+            Files.deleteIfExists(backup);
+            throw e;
+        }
+        return backup;
+    }
+
+    // Undoes committed writes, newest first: originals come back from their backups and new files are deleted.
+    // Returns the paths that could not be restored, which keep the new content, with the reason and backup.
+    private Map<Path, String> rollback(List<Path> committed, Map<Path, Path> backups) {
+        Map<Path, String> notRestored = new LinkedHashMap<>();
+        for (int i = committed.size() - 1; i >= 0; i--) {
+            Path path = committed.get(i);
+            Path backup = backups.remove(path);
+            try {
+                if (backup != null) {
+                    commitTemp(backup, path);
+                } else {
+                    Files.deleteIfExists(path);
+                }
+                FileContentCache.invalidate(path);
+            } catch (IOException e) {
+                FileContentCache.invalidate(path);
+                notRestored.put(path, e.getMessage()
+                        + (backup != null ? "; the original is in " + baseDir.relativize(backup) : "; the file did not exist before"));
+            }
+        }
+        return notRestored;
+    }
+
+    // Best effort removal of temporary files, backups and created directories, in the given order
+    private static void deleteQuietly(Iterable<Path> paths) {
+        for (Path path : paths) {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException ignored) {
+                // A directory that is no longer empty or an already removed file is left as it is
+            }
+        }
+    }
+
+    // Moves a temporary file over its target, atomically where the file system supports it
+    private void commitTemp(Path temp, Path path) throws IOException {
+        try {
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // Checks whether the file already holds exactly this content, reading it only as a last resort.
+    // Bytes are compared, so a file that is not valid UTF-8 counts as changed instead of failing the write.
+    private boolean isUnchanged(Path path, String content) throws IOException {
+        if (!Files.isRegularFile(path)) {
+            return false;
+        }
+        if (Files.size(path) != content.getBytes(StandardCharsets.UTF_8).length) {
+            return false;
+        }
+        String knownHash = FileContentCache.getHashIfFresh(path);
+        if (knownHash != null) {
+            return knownHash.equals(FileContentCache.hash(content));
+        }
+        return Arrays.equals(Files.readAllBytes(path), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Atomically writes the full content of a file unless it is unchanged, then updates the
+    // content cache, the workspace journal and the RAG index. Returns false for no-op writes.
+    private boolean writeContent(String relativePath, Path path, String content,
+                                 WorkspaceJournal.Operation operation) throws IOException {
+        if (isUnchanged(path, content)) {
+            return false;
+        }
+        commitTemp(writeTemp(path, content), path);
+        FileContentCache.put(path, content);
+        journal.record(operation, baseDir.relativize(path).toString(), content);
+
+        // Automatically index the file for RAG functionality
+        try {
+            SimpleRAGStore.indexFile(path, getCurrentAgentId());
+        } catch (Exception e) {
+            // Log but don't fail the write operation if indexing fails
+            System.err.println("Warning: Failed to index file " + relativePath + " for RAG: " + e.getMessage());
+        }
+        return true;
+    }
+
     @Tool("Reads the content of a file (path is relative to the current folder)")
     public String readFile(@P("The relative path to the file to read") String relativePath) {
 
@@ -162,7 +323,7 @@ public class FileSystemTool {
             if (Files.size(filePath) == 0) {
                 return "The file is empty";
             }
-            return Files.readString(filePath);
+            return FileContentCache.read(filePath);
         } catch (FileNotFoundException | NoSuchFileException e) {
             return "No file " + relativePath + " found";
         } catch (Exception e) {
@@ -176,20 +337,9 @@ public class FileSystemTool {
         try {
             if (null == content || content.isEmpty())
                 return  "Content is empty. No write operation performed.";
-            Path path = resolve(relativePath);
-            Files.createDirectories(path.getParent());
-            Files.writeString(path, content,
-                    StandardOpenOption.CREATE,
-                    StandardOpenOption.TRUNCATE_EXISTING);
-            
-            // Automatically index the file for RAG functionality
-            try {
-                SimpleRAGStore.indexFile(path, getCurrentAgentId());
-            } catch (Exception e) {
-                // Log but don't fail the write operation if indexing fails
-                System.err.println("Warning: Failed to index file " + relativePath + " for RAG: " + e.getMessage());
+            if (!writeContent(relativePath, resolveWritable(relativePath), content, WorkspaceJournal.Operation.WRITE)) {
+                return "File unchanged, no write performed: " + relativePath + " already has this content";
             }
-            
             return "File written successfully: " + relativePath;
         } catch (IOException e) {
             return "Error writing file: " + e.getMessage();
@@ -200,19 +350,12 @@ public class FileSystemTool {
     public String appendToFile(@P("The relative path to the file to append to") String relativePath, 
                               @P("The content to append to the file") String content) {
         try {
-            Path path = resolve(relativePath);
-            Files.writeString(path, content,
-                    StandardOpenOption.CREATE,
-                    StandardOpenOption.APPEND);
-            
-            // Automatically index the file for RAG functionality
-            try {
-                SimpleRAGStore.indexFile(path, getCurrentAgentId());
-            } catch (Exception e) {
-                // Log but don't fail the append operation if indexing fails
-                System.err.println("Warning: Failed to index file " + relativePath + " for RAG: " + e.getMessage());
-            }
-            
+            if (null == content || content.isEmpty())
+                return "Content is empty, file unchanged: " + relativePath;
+            Path path = resolveWritable(relativePath);
+            // Appends rewrite the whole file through a temp file so readers never see a partial append
+            String previous = Files.exists(path) ? FileContentCache.read(path) : "";
+            writeContent(relativePath, path, previous + content, WorkspaceJournal.Operation.APPEND);
             return "Content appended successfully: " + relativePath;
         } catch (IOException e) {
             return "Error appending to file: " + e.getMessage();
@@ -221,15 +364,13 @@ public class FileSystemTool {
 
     @Tool("Lists the entire content of the project folder as a tree structure with file contents, respecting .gitignore patterns")
     public String listProjectFiles() {
-        try (Stream<Path> paths = Files.walk(baseDir)) {
+        try {
             StringBuilder result = new StringBuilder();
-            
-            paths
-                .filter(path -> !path.equals(baseDir)) // skip base directory itself
-                .filter(path -> {
-                    String relativePath = baseDir.relativize(path).toString();
-                    return !shouldIgnore(relativePath, gitignorePatterns);
-                })
+            List<Path> paths = new ArrayList<>();
+            // Ignored directories are pruned during the walk instead of filtered afterwards
+            gitignoreMatcher.walk((path, isDirectory) -> paths.add(path));
+
+            paths.stream()
                 .sorted()
                 .forEach(path -> {
                     String relativePath = baseDir.relativize(path).toString();
@@ -237,9 +378,11 @@ public class FileSystemTool {
                     
                     if (Files.isDirectory(path)) {
                         result.append("[DIRECTORY]\n");
+                    } else if (isBinary(path)) {
+                        result.append("[BINARY FILE]\n");
                     } else {
                         try {
-                            String content = Files.readString(path);
+                            String content = FileContentCache.read(path);
                             if (content.trim().isEmpty()) {
                                 result.append("[EMPTY FILE]\n");
                             } else {
@@ -258,4 +401,396 @@ public class FileSystemTool {
             return "Error listing project files: " + e.getMessage();
         }
     }
+
+    @Tool("Lists the project folder as a tree of file paths with their sizes in bytes, without file contents, respecting .gitignore patterns. " +
+          "Use this first to get an overview, then read only the files you need.")
+    public String listProjectTree() {
+        try {
+            List<Path> files = listCandidateFiles();
+            if (files.isEmpty()) {
+                return "The project folder is empty or all files are ignored by .gitignore.";
+            }
+            // Sorting by path interleaves a directory's files with its subdirectories, so group them first
+            Map<String, List<Path>> filesByDir = new TreeMap<>();
+            for (Path path : files) {
+                Path parent = baseDir.relativize(path).getParent();
+                filesByDir.computeIfAbsent(parent == null ? "" : parent.toString(), dir -> new ArrayList<>()).add(path);
+            }
+            StringBuilder result = new StringBuilder();
+            long totalBytes = 0;
+            for (Map.Entry<String, List<Path>> dir : filesByDir.entrySet()) {
+                result.append(dir.getKey().isEmpty() ? "./" : dir.getKey() + "/").append("\n");
+                for (Path path : dir.getValue()) {
+                    long size = sizeOf(path);
+                    totalBytes += Math.max(size, 0);
+                    // Flagged by extension only, the tree must not open every file
+                    result.append("  ").append(path.getFileName()).append(" (").append(size).append(" bytes")
+                          .append(hasBinaryExtension(path) ? ", binary" : "").append(")\n");
+                }
+            }
+            result.append("\n").append(files.size()).append(" files, ").append(totalBytes).append(" bytes total\n");
+            return result.toString();
+        } catch (IOException e) {
+            return "Error listing project tree: " + e.getMessage();
+        }
+    }
+
+    @Tool("Lists project file contents one page at a time, respecting .gitignore patterns and skipping binary files. " +
+          "Pass an empty cursor for the first page, then pass the returned cursor to get the next page.")
+    public String listProjectFilesPage(@P("The cursor returned by the previous page, or empty for the first page") String cursor,
+                                       @P("Maximum number of files per page (default 20)") int pageSize) {
+        int limit = pageSize > 0 ? pageSize : DEFAULT_PAGE_SIZE;
+        try {
+            List<Path> files = listCandidateFiles();
+            StringBuilder result = new StringBuilder();
+            int returned = 0;
+            String lastReturned = null;
+            String nextCursor = null;
+            for (Path path : files) {
+                String relativePath = baseDir.relativize(path).toString();
+                // The cursor is the last path returned, so pages stay stable when files are added
+                if (cursor != null && !cursor.isBlank() && relativePath.compareTo(cursor) <= 0) {
+                    continue;
+                }
+                if (returned == limit) {
+                    nextCursor = lastReturned;
+                    break;
+                }
+                if (isBinary(path)) {
+                    result.append("=== ").append(relativePath).append(" ===\n[BINARY FILE, ")
+                          .append(sizeOf(path)).append(" bytes]\n\n");
+                } else {
+                    appendFileContent(result, relativePath, path);
+                }
+                lastReturned = relativePath;
+                returned++;
+            }
+            if (returned == 0) {
+                return "No more files to list.";
+            }
+            result.append(nextCursor == null
+                    ? "[END OF LISTING]"
+                    : "[MORE FILES AVAILABLE - next cursor: " + nextCursor + "]").append("\n");
+            return result.toString();
+        } catch (IOException e) {
+            return "Error listing project files: " + e.getMessage();
+        }
+    }
+
+    @Tool("Lists project file contents until a token budget is used up, respecting .gitignore patterns and skipping binary files. " +
+          "Files that do not fit in the budget are listed by path and size only.")
+    public String listProjectFilesWithBudget(@P("Maximum number of tokens of file content to return (default 8000)") int maxTokens) {
+        long budget = (long) (maxTokens > 0 ? maxTokens : DEFAULT_TOKEN_BUDGET) * BYTES_PER_TOKEN;
+        try {
+            List<Path> files = listCandidateFiles();
+            if (files.isEmpty()) {
+                return "The project folder is empty or all files are ignored by .gitignore.";
+            }
+            StringBuilder result = new StringBuilder();
+            List<String> omitted = new ArrayList<>();
+            long used = 0;
+            for (Path path : files) {
+                String relativePath = baseDir.relativize(path).toString();
+                long size = sizeOf(path);
+                if (hasBinaryExtension(path)) {
+                    omitted.add(relativePath + " (" + size + " bytes, binary)");
+                } else if (size < 0 || used + size > budget) {
+                    // Checked against the on-disk size so files over budget are never read
+                    omitted.add(relativePath + " (" + size + " bytes)");
+                } else if (isBinary(path)) {
+                    // Only files that fit the budget are sniffed for binary content
+                    omitted.add(relativePath + " (" + size + " bytes, binary)");
+                } else {
+                    appendFileContent(result, relativePath, path);
+                    used += size;
+                }
+            }
+            if (!omitted.isEmpty()) {
+                result.append("=== Files not included (budget exhausted or binary) ===\n");
+                for (String entry : omitted) {
+                    result.append("  ").append(entry).append("\n");
+                }
+                result.append("Use readFile to read any of them.\n");
+            }
+            return result.toString();
+        } catch (IOException e) {
+            return "Error listing project files: " + e.getMessage();
+        }
+    }
+
+    @Tool("Reads a range of lines of a file (path is relative to the current folder). Lines are numbered from 1 and " +
+          "prefixed with their line number. Use this instead of readFile when you only need part of a large file.")
+    public String readLines(@P("The relative path to the file to read") String relativePath,
+                            @P("The first line to read, starting from 1") int fromLine,
+                            @P("The last line to read (inclusive)") int toLine) {
+        try {
+            List<String> lines = FileContentCache.read(resolve(relativePath)).lines().toList();
+            if (lines.isEmpty()) {
+                return "The file is empty";
+            }
+            int from = Math.max(1, fromLine);
+            int to = Math.min(lines.size(), toLine < from ? lines.size() : toLine);
+            if (from > lines.size()) {
+                return "The file " + relativePath + " has only " + lines.size() + " lines";
+            }
+            StringBuilder result = new StringBuilder();
+            result.append("Lines ").append(from).append("-").append(to).append(" of ").append(lines.size())
+                  .append(" in ").append(relativePath).append(":\n");
+            for (int i = from; i <= to; i++) {
+                result.append(i).append(": ").append(lines.get(i - 1)).append("\n");
+            }
+            return result.toString();
+        } catch (FileNotFoundException | NoSuchFileException e) {
+            return "No file " + relativePath + " found";
+        } catch (Exception e) {
+            return "Error reading file: " + e.getMessage();
+        }
+    }
+
+    @Tool("Edits a single file by applying a patch instead of rewriting the whole file (path is relative to the current folder). " +
+          "The patch is either a unified diff (hunks starting with @@ -a,b +c,d @@) or one or more blocks of the form\n" +
+          "<<<<<<< SEARCH\n<exact existing lines>\n=======\n<replacement lines>\n>>>>>>> REPLACE\n" +
+          "Either every change applies or the file is left untouched.")
+    public String applyPatch(@P("The relative path to the file to patch") String relativePath,
+                             @P("The unified diff or SEARCH/REPLACE blocks to apply") String patch) {
+        try {
+            Path path = resolveWritable(relativePath);
+            String original = Files.exists(path) ? FileContentCache.read(path) : "";
+            String patched;
+            try {
+                patched = PatchApplier.apply(original, patch);
+            } catch (IllegalArgumentException e) {
+                return "Patch not applied to " + relativePath + ": " + e.getMessage();
+            }
+            if (patched.equals(original)) {
+                return "Patch applied but " + relativePath + " is unchanged";
+            }
+            writeContent(relativePath, path, patched, WorkspaceJournal.Operation.WRITE);
+            long changedLines = patched.lines().count() - original.lines().count();
+            return "Patch applied successfully: " + relativePath + " (" + patched.lines().count() + " lines, "
+                    + (changedLines >= 0 ? "+" : "") + changedLines + ")";
+        } catch (IOException e) {
+            return "Error patching file: " + e.getMessage();
+        }
+    }
+
+    @Tool("Writes many files in a single call (paths are relative to the current folder). Overwrites existing files. " +
+          "Use this instead of repeated writeFile calls when creating or updating several files, e.g. a project skeleton. " +
+          "Either all files are written or none are.")
+    public String writeFiles(@P("The files to write, each with a relative path and its full content") List<FileWrite> files) {
+        if (files == null || files.isEmpty()) {
+            return "No files given. No write operation performed.";
+        }
+
+        // Validate the whole batch before touching the disk; the last entry wins for duplicate paths
+        Map<Path, FileWrite> targets = new LinkedHashMap<>();
+        for (FileWrite file : files) {
+            if (file == null || file.path == null || file.path.isBlank()) {
+                return "Batch rejected: every file needs a path. No files were written.";
+            }
+            if (file.content == null || file.content.isEmpty()) {
+                return "Batch rejected: content of " + file.path + " is empty. No files were written.";
+            }
+            try {
+                targets.put(resolveWritable(file.path), file);
+            } catch (IOException e) {
+                return "Batch rejected: " + e.getMessage() + ". No files were written.";
+            }
+        }
+
+        // Prepare: write every changed file under a temporary name and copy the originals it replaces
+        Map<Path, Path> staged = new LinkedHashMap<>();
+        Map<Path, Path> backups = new LinkedHashMap<>();
+        List<Path> createdDirs = new ArrayList<>();
+        List<String> unchanged = new ArrayList<>();
+        try {
+            for (Map.Entry<Path, FileWrite> target : targets.entrySet()) {
+                if (isUnchanged(target.getKey(), target.getValue().content)) {
+                    unchanged.add(target.getValue().path);
+                    continue;
+                }
+                createParents(target.getKey(), createdDirs);
+                staged.put(target.getKey(), writeTemp(target.getKey(), target.getValue().content));
+                if (Files.exists(target.getKey())) {
+                    backups.put(target.getKey(), backup(target.getKey()));
+                }
+            }
+        } catch (IOException e) {
+            deleteQuietly(staged.values());
+            deleteQuietly(backups.values());
+            deleteQuietly(createdDirs);
+            return "Error writing files: " + e.getMessage() + ". No files were written.";
+        }
+
+        // Commit: rename every temporary file over its target; on the first failure put the
+        // originals back, remove the files that did not exist before and stop
+        List<Path> committed = new ArrayList<>();
+        for (Map.Entry<Path, Path> entry : staged.entrySet()) {
+            Path path = entry.getKey();
+            try {
+                commitTemp(entry.getValue(), path);
+                committed.add(path);
+            } catch (IOException e) {
+                Map<Path, String> notRestored = rollback(committed, backups);
+                deleteQuietly(staged.values());
+                deleteQuietly(backups.values());
+                deleteQuietly(createdDirs);
+                String result = "Error writing " + targets.get(path).path + ": " + e.getMessage() + ".";
+                if (notRestored.isEmpty()) {
+                    return result + " No files were written.";
+                }
+                StringBuilder partial = new StringBuilder(result)
+                        .append(" The batch was rolled back, but these files could not be restored and hold the new content:\n");
+                for (Map.Entry<Path, String> failure : notRestored.entrySet()) {
+                    String content = targets.get(failure.getKey()).content;
+                    journal.record(WorkspaceJournal.Operation.WRITE, baseDir.relativize(failure.getKey()).toString(), content);
+                    partial.append("  ").append(baseDir.relativize(failure.getKey())).append(" (").append(failure.getValue()).append(")\n");
+                }
+                return partial.append("All other files are unchanged.\n").toString();
+            }
+        }
+        deleteQuietly(backups.values());
+
+        long totalBytes = 0;
+        for (Path path : committed) {
+            String content = targets.get(path).content;
+            FileContentCache.put(path, content);
+            journal.record(WorkspaceJournal.Operation.WRITE, baseDir.relativize(path).toString(), content);
+            totalBytes += content.length();
+        }
+
+        // Index everything that was written in one bulk pass
+        if (!committed.isEmpty()) {
+            try {
+                SimpleRAGStore.indexFiles(committed, getCurrentAgentId());
+            } catch (Exception e) {
+                System.err.println("Warning: Failed to index written files for RAG: " + e.getMessage());
+            }
+        }
+
+        StringBuilder result = new StringBuilder();
+        result.append("Files written successfully: ").append(committed.size()).append(" of ").append(targets.size())
+              .append(" (").append(totalBytes).append(" chars)\n");
+        for (Path path : committed) {
+            result.append("  ").append(baseDir.relativize(path)).append("\n");
+        }
+        if (!unchanged.isEmpty()) {
+            result.append("Unchanged, no write performed (already had this content):\n");
+            for (String path : unchanged) {
+                result.append("  ").append(path).append("\n");
+            }
+        }
+        return result.toString();
+    }
+
+    @Tool("Deletes a file (path is relative to the current folder)")
+    public String deleteFile(@P("The relative path to the file to delete") String relativePath) {
+        try {
+            Path path = resolveWritable(relativePath);
+            if (Files.isDirectory(path)) {
+                return "Cannot delete " + relativePath + ": it is a directory";
+            }
+            if (!Files.deleteIfExists(path)) {
+                return "No file " + relativePath + " found";
+            }
+            FileContentCache.invalidate(path);
+            SimpleRAGStore.removeFile(path);
+            journal.record(WorkspaceJournal.Operation.DELETE, baseDir.relativize(path).toString(), null);
+            return "File deleted successfully: " + relativePath;
+        } catch (IOException e) {
+            return "Error deleting file: " + e.getMessage();
+        }
+    }
+
+    @Tool("Lists only the files written, appended or deleted since a workspace cursor, with their content hashes. " +
+          "Pass 0 the first time; remember the returned cursor and pass it next time instead of re-reading the whole project.")
+    public String listChangesSince(@P("The workspace cursor returned by the previous call, or 0") long cursor,
+                                   @P("Whether to include the current content of changed files") boolean includeContent) {
+        List<WorkspaceJournal.Change> changes = journal.changesSince(cursor);
+        long current = journal.currentSequence();
+        if (changes.isEmpty()) {
+            return "No changes since cursor " + cursor + ". Current cursor: " + current;
+        }
+
+        StringBuilder result = new StringBuilder();
+        result.append(changes.size()).append(" files changed since cursor ").append(cursor)
+              .append(". Current cursor: ").append(current).append("\n");
+        for (WorkspaceJournal.Change change : changes) {
+            result.append("  ").append(change.getOperation()).append(" ").append(change.getPath())
+                  .append(" (hash ").append(change.getHash()).append(")\n");
+        }
+        if (includeContent) {
+            long budget = (long) DEFAULT_TOKEN_BUDGET * BYTES_PER_TOKEN;
+            long used = 0;
+            result.append("\n");
+            for (WorkspaceJournal.Change change : changes) {
+                if (change.getOperation() == WorkspaceJournal.Operation.DELETE) {
+                    continue;
+                }
+                Path path = baseDir.resolve(change.getPath());
+                long size = sizeOf(path);
+                if (size < 0) {
+                    continue;
+                }
+                // Size and budget come first, so only files that would be included are sniffed for binary content
+                if (hasBinaryExtension(path) || used + size > budget || isBinary(path)) {
+                    result.append("=== ").append(change.getPath()).append(" ===\n[NOT INCLUDED, ")
+                          .append(size).append(" bytes - use readFile or readLines]\n\n");
+                } else {
+                    appendFileContent(result, change.getPath(), path);
+                    used += size;
+                }
+            }
+        }
+        return result.toString();
+    }
+
+    @Tool("Searches the project files for lines matching a Java regular expression, respecting .gitignore patterns " +
+          "and skipping binary files. Returns file:line hits with a few lines of context. Use this to find where a class, " +
+          "method or text is used, then read only the relevant files or lines.")
+    public String searchFiles(@P("The Java regular expression to search for, e.g. 'CalculatorResource' or '(?i)todo'") String regex,
+                              @P("Glob of the files to search, e.g. '*.java' or 'src/main/**' (empty for all files)") String glob,
+                              @P("Maximum number of matches to return (default 50)") int maxMatches,
+                              @P("Number of context lines to show before and after each match (0-5)") int contextLines) {
+        Pattern pattern;
+        try {
+            pattern = Pattern.compile(regex);
+        } catch (PatternSyntaxException e) {
+            return "Invalid regular expression: " + e.getDescription();
+        }
+        int limit = maxMatches > 0 ? maxMatches : DEFAULT_MAX_MATCHES;
+        int context = Math.max(0, Math.min(contextLines, MAX_CONTEXT_LINES));
+        try {
+            // One match past the limit tells whether the search stopped early
+            List<FileSearcher.Hit> hits = fileSearcher.search(pattern, glob, limit + 1, context);
+            if (hits.isEmpty()) {
+                return "No matches found for: " + regex;
+            }
+            boolean stopped = hits.size() > limit;
+            if (stopped) {
+                hits = hits.subList(0, limit);
+            }
+            StringBuilder result = new StringBuilder();
+            result.append(hits.size()).append(stopped ? "+" : "").append(" matches for: ").append(regex).append("\n");
+            for (FileSearcher.Hit hit : hits) {
+                if (context > 0) {
+                    result.append("--\n");
+                }
+                int lineNumber = hit.getLineNumber() - hit.getBefore().size();
+                for (String line : hit.getBefore()) {
+                    result.append(hit.getPath()).append("-").append(lineNumber++).append("- ").append(line).append("\n");
+                }
+                result.append(hit.getPath()).append(":").append(lineNumber++).append(": ").append(hit.getLine()).append("\n");
+                for (String line : hit.getAfter()) {
+                    result.append(hit.getPath()).append("-").append(lineNumber++).append("- ").append(line).append("\n");
+                }
+            }
+            if (stopped) {
+                result.append("[STOPPED AFTER ").append(limit).append(" MATCHES - refine the regex or glob to see more]\n");
+            }
+            return result.toString();
+        } catch (IOException e) {
+            return "Error searching project files: " + e.getMessage();
+        }
+    }
 }
@@ -0,0 +1,310 @@
+package com.github.dloiacono.ai.agents.tools;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiConsumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Matches paths against all .gitignore files of a project, including nested ones.
+ * The rules of each .gitignore file are compiled into a single regular expression whose
+ * alternatives are ordered last-rule-first, so one match yields the deciding rule and
+ * negated ("!") rules are honoured. Rules are reloaded when a .gitignore file changes.
+ */
+public class GitignoreMatcher {
+
+    private static final String GITIGNORE = ".gitignore";
+    // Internal stores that are never useful as project context
+    private static final Set<String> ALWAYS_IGNORED = Set.of(".git", ".agent-memory", ".rag-store", ".build-logs");
+
+    private final Path baseDir;
+    private final ConcurrentMap<Path, CompiledRules> rulesByDirectory = new ConcurrentHashMap<>();
+
+    public GitignoreMatcher(Path baseDir) {
+        this.baseDir = baseDir;
+    }
+
+    /**
+     * Rules of a single .gitignore file, compiled into one pattern
+     */
+    private static final class CompiledRules {
+        private final FileTime lastModified;
+        private final long size;
+        private final Pattern pattern;
+        private final boolean[] negatedByGroup;
+
+        private CompiledRules(FileTime lastModified, long size, List<String> lines) {
+            this.lastModified = lastModified;
+            this.size = size;
+
+            List<String> alternatives = new ArrayList<>();
+            List<Boolean> negations = new ArrayList<>();
+            for (String line : lines) {
+                String rule = stripTrailingSpaces(line);
+                if (rule.isEmpty() || rule.startsWith("#")) {
+                    continue;
+                }
+                boolean negated = rule.startsWith("!");
+                if (negated) {
+                    rule = rule.substring(1);
+                } else if (rule.startsWith("\\!") || rule.startsWith("\\#")) {
+                    rule = rule.substring(1);
+                }
+                if (rule.isEmpty()) {
+                    continue;
+                }
+                alternatives.add(toRegex(rule));
+                negations.add(negated);
+            }
+
+            if (alternatives.isEmpty()) {
+                this.pattern = null;
+                this.negatedByGroup = new boolean[0];
+                return;
+            }
+
+            // Reverse order: the first alternative that matches is the last rule in the file
+            StringBuilder regex = new StringBuilder();
+            this.negatedByGroup = new boolean[alternatives.size() + 1];
+            for (int i = alternatives.size() - 1, group = 1; i >= 0; i--, group++) {
+                if (regex.length() > 0) {
+                    regex.append('|');
+                }
+                regex.append('(').append(alternatives.get(i)).append(')');
+                negatedByGroup[group] = negations.get(i);
+            }
+            this.pattern = Pattern.compile(regex.toString());
+        }
+
+        /**
+         * @return TRUE if ignored, FALSE if explicitly re-included, null if no rule matched
+         */
+        private Boolean match(String relativePath, boolean isDirectory) {
+            if (pattern == null) {
+                return null;
+            }
+            Matcher matcher = pattern.matcher(isDirectory ? relativePath + "/" : relativePath);
+            if (!matcher.matches()) {
+                return null;
+            }
+            for (int group = 1; group < negatedByGroup.length; group++) {
+                if (matcher.group(group) != null) {
+                    return !negatedByGroup[group];
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Checks whether the given path (absolute, or relative to the base directory) is ignored.
+     * A path is ignored if any of its parent directories is ignored.
+     */
+    public boolean isIgnored(Path path, boolean isDirectory) {
+        Path relative = relativize(path);
+        if (relative.toString().isEmpty()) {
+            return false;
+        }
+        for (int i = 1; i < relative.getNameCount(); i++) {
+            if (matches(relative.subpath(0, i), true)) {
+                return true;
+            }
+        }
+        return matches(relative, isDirectory);
+    }
+
+    /**
+     * Walks the project tree, skipping ignored directories without descending into them.
+     * The visitor receives each non-ignored path and whether it is a directory, in the file
+     * system's order, which is not sorted; callers needing a stable order sort what they collect.
+     */
+    public void walk(BiConsumer<Path, Boolean> visitor) throws IOException {
+        // Rules of the directories being visited, by depth; each .gitignore is looked up once per walk
+        List<CompiledRules> rulesByDepth = new ArrayList<>();
+        Files.walkFileTree(baseDir, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                if (!dir.equals(baseDir)) {
+                    // Parents were already accepted, so only the directory itself needs checking
+                    if (matches(baseDir.relativize(dir), true, rulesByDepth)) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    visitor.accept(dir, true);
+                }
+                rulesByDepth.add(rulesFor(dir));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (attrs.isRegularFile() && !matches(baseDir.relativize(file), false, rulesByDepth)) {
+                    visitor.accept(file, false);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) {
+                rulesByDepth.remove(rulesByDepth.size() - 1);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Returns all non-ignored regular files, sorted by path
+     */
+    public List<Path> listFiles() throws IOException {
+        List<Path> files = new ArrayList<>();
+        walk((path, isDirectory) -> {
+            if (!isDirectory) {
+                files.add(path);
+            }
+        });
+        files.sort(null);
+        return files;
+    }
+
+    private boolean matches(Path relative, boolean isDirectory) {
+        List<CompiledRules> rulesByDepth = new ArrayList<>();
+        for (int depth = 0; depth < relative.getNameCount(); depth++) {
+            rulesByDepth.add(rulesFor(depth == 0 ? baseDir : baseDir.resolve(relative.subpath(0, depth))));
+        }
+        return matches(relative, isDirectory, rulesByDepth);
+    }
+
+    // Evaluates the .gitignore files from the deepest directory up; the deepest matching rule wins.
+    // rulesByDepth holds the rules of the path's parent directories, the base directory first.
+    private static boolean matches(Path relative, boolean isDirectory, List<CompiledRules> rulesByDepth) {
+        if (isDirectory && ALWAYS_IGNORED.contains(relative.getFileName().toString())) {
+            return true;
+        }
+        for (int depth = relative.getNameCount() - 1; depth >= 0; depth--) {
+            CompiledRules rules = rulesByDepth.get(depth);
+            if (rules == null) {
+                continue;
+            }
+            String pathInRuleDir = relative.subpath(depth, relative.getNameCount()).toString().replace('\\', '/');
+            Boolean result = rules.match(pathInRuleDir, isDirectory);
+            if (result != null) {
+                return result;
+            }
+        }
+        return false;
+    }
+
+    // Returns the compiled rules of the directory's .gitignore, recompiling when it changed
+    private CompiledRules rulesFor(Path directory) {
+        Path gitignoreFile = directory.resolve(GITIGNORE);
+        BasicFileAttributes attrs;
+        try {
+            attrs = Files.readAttributes(gitignoreFile, BasicFileAttributes.class);
+        } catch (IOException e) {
+            rulesByDirectory.remove(directory);
+            return null;
+        }
+        CompiledRules cached = rulesByDirectory.get(directory);
+        if (cached != null && cached.lastModified.equals(attrs.lastModifiedTime()) && cached.size == attrs.size()) {
+            return cached;
+        }
+        try {
+            CompiledRules compiled = new CompiledRules(attrs.lastModifiedTime(), attrs.size(), Files.readAllLines(gitignoreFile));
+            rulesByDirectory.put(directory, compiled);
+            return compiled;
+        } catch (IOException e) {
+            // If we can't read .gitignore, continue without filtering
+            return null;
+        }
+    }
+
+    private Path relativize(Path path) {
+        return path.isAbsolute() ? baseDir.relativize(path.normalize()) : path.normalize();
+    }
+
+    private static String stripTrailingSpaces(String line) {
+        int end = line.length();
+        while (end > 0 && (line.charAt(end - 1) == ' ' || line.charAt(end - 1) == '\t' || line.charAt(end - 1) == '\r')
+                && !(end > 1 && line.charAt(end - 2) == '\\')) {
+            end--;
+        }
+        return line.substring(0, end);
+    }
+
+    // Converts a single gitignore glob to a regex without capturing groups
+    private static String toRegex(String rule) {
+        boolean directoryOnly = rule.endsWith("/");
+        if (directoryOnly) {
+            rule = rule.substring(0, rule.length() - 1);
+        }
+        // A slash anywhere but at the end anchors the rule to the .gitignore directory
+        boolean anchored = rule.contains("/");
+        if (rule.startsWith("/")) {
+            rule = rule.substring(1);
+        }
+
+        StringBuilder regex = new StringBuilder();
+        if (!anchored) {
+            regex.append("(?:.*/)?");
+        }
+        for (int i = 0; i < rule.length(); i++) {
+            char c = rule.charAt(i);
+            if (c == '*' && i + 1 < rule.length() && rule.charAt(i + 1) == '*') {
+                boolean atStart = i == 0 || rule.charAt(i - 1) == '/';
+                boolean followedBySlash = i + 2 < rule.length() && rule.charAt(i + 2) == '/';
+                if (atStart && followedBySlash) {
+                    // "**/" matches zero or more directories
+                    regex.append("(?:.*/)?");
+                    i += 2;
+                } else if (atStart && i + 2 == rule.length()) {
+                    // Trailing "/**" matches everything inside but not the directory itself,
+                    // so negated rules can still re-include files in it
+                    regex.append(".+");
+                    i++;
+                } else {
+                    regex.append(".*");
+                    i++;
+                }
+            } else if (c == '*') {
+                regex.append("[^/]*");
+            } else if (c == '?') {
+                regex.append("[^/]");
+            } else if (c == '[') {
+                int close = rule.indexOf(']', i + 2);
+                if (close < 0) {
+                    regex.append("\\[");
+                } else {
+                    String body = rule.substring(i + 1, close);
+                    if (body.startsWith("!")) {
+                        body = "^" + body.substring(1);
+                    }
+                    regex.append('[').append(body.replace("\\", "\\\\")).append(']');
+                    i = close;
+                }
+            } else if (c == '\\' && i + 1 < rule.length()) {
+                regex.append(Pattern.quote(String.valueOf(rule.charAt(++i))));
+            } else if ("\\.^$|+(){}".indexOf(c) >= 0) {
+                regex.append('\\').append(c);
+            } else {
+                regex.append(c);
+            }
+        }
+        regex.append(directoryOnly ? "/" : "/?");
+        return regex.toString();
+    }
+}
@@ -0,0 +1,65 @@
+package com.github.dloiacono.ai.agents.tools;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Process-wide build latency statistics of MavenTool, per execution mode.
+ * The first build of each mode is reported separately: for the daemon it includes the cold
+ * daemon start, while the following builds run warm, so they can be compared directly with
+ * fresh Maven processes, which are always cold.
+ */
+public class MavenBuildStats {
+
+    private static final Map<String, ModeStats> statsByMode = new LinkedHashMap<>();
+
+    private MavenBuildStats() {
+    }
+
+    private static final class ModeStats {
+        private long firstMillis = -1;
+        private long laterCount = 0;
+        private long laterTotalMillis = 0;
+        private long laterMinMillis = Long.MAX_VALUE;
+        private long laterMaxMillis = 0;
+    }
+
+    /**
+     * Records a build duration and returns whether it was the first build of the mode
+     */
+    public static synchronized boolean record(String mode, long durationMillis) {
+        ModeStats stats = statsByMode.computeIfAbsent(mode, m -> new ModeStats());
+        if (stats.firstMillis < 0) {
+            stats.firstMillis = durationMillis;
+            return true;
+        }
+        stats.laterCount++;
+        stats.laterTotalMillis += durationMillis;
+        stats.laterMinMillis = Math.min(stats.laterMinMillis, durationMillis);
+        stats.laterMaxMillis = Math.max(stats.laterMaxMillis, durationMillis);
+        return false;
+    }
+
+    /**
+     * One line per mode with the first build latency and the average of the following builds
+     */
+    public static synchronized String summary() {
+        if (statsByMode.isEmpty()) {
+            return "no Maven builds executed";
+        }
+        StringBuilder result = new StringBuilder();
+        for (Map.Entry<String, ModeStats> entry : statsByMode.entrySet()) {
+            ModeStats stats = entry.getValue();
+            if (result.length() > 0) {
+                result.append("; ");
+            }
+            result.append(entry.getKey()).append(": first=").append(stats.firstMillis).append("ms");
+            if (stats.laterCount > 0) {
+                result.append(", later avg=").append(stats.laterTotalMillis / stats.laterCount).append("ms")
+                      .append(" (min=").append(stats.laterMinMillis).append("ms, max=").append(stats.laterMaxMillis)
+                      .append("ms, n=").append(stats.laterCount).append(")");
+            }
+        }
+        return result.toString();
+    }
+}
@@ -3,68 +3,517 @@ package com.github.dloiacono.ai.agents.tools;
 import dev.langchain4j.agent.tool.P;
 import dev.langchain4j.agent.tool.Tool;
 
-import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class MavenTool {
 
     private final static String BASE_DIR = "./generated-project";
+    // Maven Daemon keeps a warm JVM with cached plugin classloaders and JIT-compiled code between builds
+    private final static String MAVEN_DAEMON = "mvnd";
+    private final static String MAVEN = "mvn";
+    // Set AGENTS_MAVEN_DAEMON=false to always start a fresh Maven process
+    private final static String DAEMON_ENV = "AGENTS_MAVEN_DAEMON";
+    private final static int DAEMON_STOP_SECONDS = 30;
+    // Each project directory gets its own daemon registry, so stopping its daemons leaves those of
+    // other projects, other processes and the user's own sessions running
+    private final static String DAEMON_STORAGE_PROPERTY = "-Dmvnd.daemonStorage=";
+    // Set AGENTS_MAVEN_FAST_STARTUP=true to favour startup time over peak performance for fresh Maven
+    // processes; off by default since long builds and test runs get slower without the optimizing compiler
+    private final static String FAST_STARTUP_ENV = "AGENTS_MAVEN_FAST_STARTUP";
+    private final static String COLD_MAVEN_OPTS = "-XX:+TieredCompilation -XX:TieredStopAtLevel=1";
+
+    // Full build logs are kept here, only a compact summary is returned to the agent
+    private final static String BUILD_LOG_DIR = ".build-logs";
+    private final static int MAX_BUILD_LOGS = 20;
+    private final static int MAX_LOG_LINES_PER_READ = 200;
+    private final static DateTimeFormatter LOG_NAME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+
+    // A build is killed, with all its forked processes, when it runs longer than this
+    private final static Duration BUILD_DEADLINE = Duration.ofMinutes(5);
+    private final static int MAX_WAIT_SECONDS = 120;
+    private final static int POLL_TAIL_LINES = 20;
+
+    private final static String FULL_TEST_COMMAND = "test";
+    // Goals that run the unit tests as part of the lifecycle
+    private final static Set<String> TEST_GOALS = Set.of("test", "package", "verify", "install", "deploy");
+
+    // Journal sequence at the start of the last build in which all tests passed, per project directory
+    private static final Map<Path, Long> greenCursors = new ConcurrentHashMap<>();
+
+    // null until the first build checks whether mvnd is installed and enabled
+    private static volatile Boolean daemonInstalled = null;
+    // After a daemon failure builds use a fresh Maven process until this time, then the daemon is tried again
+    private static volatile long daemonRetryAtMillis = 0;
+    private final static long DAEMON_COOL_DOWN_MILLIS = Duration.ofMinutes(5).toMillis();
+    // Errors of the mvnd client when it cannot reach its daemon or loses it during the build
+    private final static List<String> DAEMON_ERRORS = List.of(
+            "Could not connect to the Maven daemon",
+            "Timeout waiting to connect to the Maven daemon",
+            "Could not receive a message from the daemon",
+            "Could not dispatch a message to the daemon",
+            "Daemon process terminated",
+            "Unable to find a usable idle daemon");
+
+    // Builds of the same project directory must not overlap, they share the target directory
+    private static final Map<Path, Object> buildLocks = new ConcurrentHashMap<>();
+
     private final Path baseDir;
+    // Prefix of the project directory in the workspace journal paths, empty for the project root
+    private final String journalPrefix;
+    private final WorkspaceJournal journal;
+    private final TestImpactAnalyzer testImpactAnalyzer;
 
     public MavenTool() {
-        this.baseDir = Paths.get(BASE_DIR).toAbsolutePath().normalize();
+        this("");
+    }
+
+    /**
+     * Creates a tool that builds the Maven project in the given workspace sub-tree
+     * @param workspaceSubtree directory relative to the project root, or empty for the project root
+     */
+    public MavenTool(String workspaceSubtree) {
+        Path projectRoot = Paths.get(BASE_DIR).toAbsolutePath().normalize();
+        this.baseDir = projectRoot.resolve(workspaceSubtree).normalize();
+        this.journalPrefix = baseDir.equals(projectRoot) ? "" : projectRoot.relativize(baseDir).toString().replace('\\', '/') + "/";
+        this.journal = WorkspaceJournal.forProject(projectRoot);
+        this.testImpactAnalyzer = new TestImpactAnalyzer(baseDir);
     }
 
-    @Tool("Executes Maven commands in the project directory. Use this to run any Maven goal or command with parameters.")
+    /**
+     * Outcome of a single Maven process
+     */
+    private static final class MavenRun {
+        private final String mode;
+        private final BuildExecutor.ProcessRun process;
+        private final Path logFile;
+
+        private MavenRun(String mode, BuildExecutor.ProcessRun process, Path logFile) {
+            this.mode = mode;
+            this.process = process;
+            this.logFile = logFile;
+        }
+
+        // The daemon itself failed (as opposed to the build), so a fresh process should be tried
+        private boolean daemonFailed() {
+            String output = String.join("\n", process.getTail());
+            return process.getExitCode() != 0 && !process.isTimedOut() && !process.isCancelled()
+                    && !output.contains("BUILD FAILURE") && !output.contains("BUILD SUCCESS")
+                    && DAEMON_ERRORS.stream().anyMatch(output::contains);
+        }
+    }
+
+    @Tool("Executes Maven commands in the project directory. Use this to run any Maven goal or command with parameters. " +
+          "Returns a compact summary (test totals, failing tests with messages, compile errors with file:line) and a reference to the full log.")
     public String executeMaven(@P("The Maven command and parameters to execute (e.g., 'clean compile', 'test', 'package -DskipTests')") String mavenCommand) {
+        return build(mavenCommand, runsAllTests(mavenCommand));
+    }
+
+    @Tool("Starts a Maven command in the background and returns its build id immediately. " +
+          "Use pollMaven or waitForMaven to get the result and cancelMaven to stop it.")
+    public String startMaven(@P("The Maven command and parameters to execute (e.g., 'clean install')") String mavenCommand) {
+        BuildExecutor.BuildJob job = submit(mavenCommand, runsAllTests(mavenCommand));
+        return "Build " + job.getId() + " started: mvn " + mavenCommand.trim();
+    }
+
+    @Tool("Returns the status of a background Maven build: the last output lines while it runs, the build summary when finished")
+    public String pollMaven(@P("The build id returned by startMaven") int buildId) {
+        BuildExecutor.BuildJob job = BuildExecutor.get(buildId);
+        if (job == null) {
+            return "Error: Unknown build id: " + buildId;
+        }
         try {
-            // Build the full command
-            String[] commandParts = ("mvn " + mavenCommand).split("\\s+");
-            
-            ProcessBuilder processBuilder = new ProcessBuilder(commandParts);
-            processBuilder.directory(baseDir.toFile());
-            processBuilder.redirectErrorStream(true); // Merge stderr with stdout
-            
-            Process process = processBuilder.start();
-            
-            // Read the output
-            StringBuilder output = new StringBuilder();
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    output.append(line).append("\n");
-                }
-            }
-            
-            // Wait for the process to complete with a timeout
-            boolean finished = process.waitFor(5, TimeUnit.MINUTES);
-            
-            if (!finished) {
-                process.destroyForcibly();
-                return "Maven command timed out after 5 minutes: " + mavenCommand;
-            }
-            
-            int exitCode = process.exitValue();
-            String result = output.toString();
-            
-            if (exitCode == 0) {
-                return "Maven command executed successfully:\n" + result;
-            } else {
-                return "Maven command failed with exit code " + exitCode + ":\n" + result;
-            }
-            
+            String result = job.await(0);
+            return result != null ? "Build " + buildId + " finished:\n" + result : running(job);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return running(job);
+        }
+    }
+
+    @Tool("Waits for a background Maven build to finish, at most the given number of seconds, and returns its summary or status")
+    public String waitForMaven(@P("The build id returned by startMaven") int buildId,
+                               @P("Maximum number of seconds to wait (at most 120)") int maxSeconds) {
+        BuildExecutor.BuildJob job = BuildExecutor.get(buildId);
+        if (job == null) {
+            return "Error: Unknown build id: " + buildId;
+        }
+        try {
+            String result = job.await(Math.max(0, Math.min(maxSeconds, MAX_WAIT_SECONDS)) * 1000L);
+            return result != null ? "Build " + buildId + " finished:\n" + result : running(job);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return running(job);
+        }
+    }
+
+    @Tool("Cancels a background Maven build and kills all its processes")
+    public String cancelMaven(@P("The build id returned by startMaven") int buildId) {
+        BuildExecutor.BuildJob job = BuildExecutor.get(buildId);
+        if (job == null) {
+            return "Error: Unknown build id: " + buildId;
+        }
+        if (job.isDone()) {
+            return "Build " + buildId + " already finished";
+        }
+        job.cancel();
+        return "Build " + buildId + " cancelled: mvn " + job.getCommand();
+    }
+
+    @Tool("Runs the project tests. With onlyAffected=true only the test classes affected by the files changed since the " +
+          "last green test run are executed, selected from the compiled class dependencies; use onlyAffected=false for a full run.")
+    public String runTests(@P("true to run only the affected tests, false to run all tests") boolean onlyAffected) {
+        long cursor = greenCursors.getOrDefault(baseDir, -1L);
+        if (!onlyAffected) {
+            return build(FULL_TEST_COMMAND, true);
+        }
+        if (cursor < 0) {
+            return "Full test run (no green test run recorded yet):\n" + build(FULL_TEST_COMMAND, true);
+        }
+        List<String> changedPaths = journal.changesSince(cursor).stream()
+                .map(WorkspaceJournal.Change::getPath)
+                .filter(path -> path.startsWith(journalPrefix))
+                .map(path -> path.substring(journalPrefix.length()))
+                .collect(Collectors.toList());
+        TestImpactAnalyzer.Selection selection;
+        try {
+            selection = testImpactAnalyzer.select(changedPaths);
         } catch (IOException e) {
-            return "Error executing Maven command: " + e.getMessage() + 
-                   "\nMake sure Maven is installed and available in PATH.";
+            System.err.println("Warning: Could not select affected tests: " + e.getMessage());
+            return "Full test run (affected tests could not be determined):\n" + build(FULL_TEST_COMMAND, true);
+        }
+        String changes = changedPaths.size() + " files changed since the last green run (cursor " + cursor + ")";
+        if (selection.isFullRun()) {
+            return "Full test run (" + selection.getFullRunReason() + "):\n" + build(FULL_TEST_COMMAND, true);
+        }
+        if (selection.getTestClasses().isEmpty()) {
+            // Nothing to test, but the change must still compile
+            return "No tests affected by " + changes + ", only compiling:\n" + build("test-compile", true);
+        }
+        String command = "test -Dtest=" + String.join(",", selection.getTestClasses())
+                + " -Dsurefire.failIfNoSpecifiedTests=false -DfailIfNoTests=false";
+        return "Affected tests (" + selection.getTestClasses().size() + ") for " + changes + ": "
+                + String.join(", ", selection.getTestClasses()) + "\n" + build(command, true);
+    }
+
+    /**
+     * Runs a build and waits for its summary
+     * @param coversAllTests whether a successful build proves that all tests pass
+     */
+    private String build(String mavenCommand, boolean coversAllTests) {
+        BuildExecutor.BuildJob job = submit(mavenCommand, coversAllTests);
+        try {
+            return job.await(Long.MAX_VALUE);
         } catch (InterruptedException e) {
+            job.cancel();
             Thread.currentThread().interrupt();
             return "Maven command was interrupted: " + mavenCommand;
-        } catch (Exception e) {
-            return "Unexpected error executing Maven command: " + e.getMessage();
         }
     }
+
+    private BuildExecutor.BuildJob submit(String mavenCommand, boolean coversAllTests) {
+        return BuildExecutor.submit(mavenCommand.trim(), job -> execute(job, mavenCommand, coversAllTests));
+    }
+
+    // Runs on the build pool
+    private String execute(BuildExecutor.BuildJob job, String mavenCommand, boolean coversAllTests) {
+        synchronized (buildLocks.computeIfAbsent(baseDir, dir -> new Object())) {
+            try {
+                return executeLocked(job, mavenCommand, coversAllTests);
+            } catch (IOException e) {
+                return "Error executing Maven command: " + e.getMessage() +
+                       "\nMake sure Maven is installed and available in PATH.";
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return "Maven command was interrupted: " + mavenCommand;
+            } catch (Exception e) {
+                return "Unexpected error executing Maven command: " + e.getMessage();
+            }
+        }
+    }
+
+    private String executeLocked(BuildExecutor.BuildJob job, String mavenCommand, boolean coversAllTests)
+            throws IOException, InterruptedException {
+        long buildStartMillis = System.currentTimeMillis();
+        long cursorAtStart = journal.currentSequence();
+        // Checked while holding the lock, so a queued duplicate of a running build hits the cache
+        String fingerprint = cacheable(mavenCommand) ? fingerprint(mavenCommand) : null;
+        BuildResultCache.Entry cached = fingerprint == null ? null : BuildResultCache.get(fingerprint);
+        if (cached != null && outputsPresent(mavenCommand)) {
+            if (coversAllTests && cached.getSummary().isSuccess()) {
+                greenCursors.put(baseDir, cursorAtStart);
+            }
+            return cached.getSummary().format(" [cache hit: unchanged sources, pom and command, saved "
+                    + cached.getDurationMillis() + "ms]");
+        }
+        List<String> arguments = Arrays.asList(mavenCommand.trim().split("\\s+"));
+        MavenRun run = null;
+        if (useDaemon()) {
+            try {
+                run = launch(job, MAVEN_DAEMON, arguments);
+                if (run.daemonFailed()) {
+                    System.err.println("Warning: Maven daemon failed, falling back to a fresh Maven process for "
+                            + DAEMON_COOL_DOWN_MILLIS / 60_000 + " minutes");
+                    daemonRetryAtMillis = System.currentTimeMillis() + DAEMON_COOL_DOWN_MILLIS;
+                    run = null;
+                }
+            } catch (IOException e) {
+                System.err.println("Warning: Could not start Maven daemon (" + e.getMessage() + "), falling back to a fresh Maven process for "
+                        + DAEMON_COOL_DOWN_MILLIS / 60_000 + " minutes");
+                daemonRetryAtMillis = System.currentTimeMillis() + DAEMON_COOL_DOWN_MILLIS;
+            }
+        }
+        if (run == null) {
+            run = launch(job, MAVEN, arguments);
+        }
+        String logReference = run.logFile == null ? null : BUILD_LOG_DIR + "/" + run.logFile.getFileName();
+        if (run.process.isCancelled()) {
+            return "Maven command was cancelled after " + run.process.getDurationMillis() + "ms: " + mavenCommand
+                    + (logReference == null ? "" : "\nPartial log: " + logReference);
+        }
+
+        boolean first = MavenBuildStats.record(run.mode, run.process.getDurationMillis());
+        // Only daemon builds after the first one reuse a warm JVM
+        boolean warm = "daemon".equals(run.mode) && !first;
+        String timing = " [" + run.mode + ", " + (warm ? "warm" : "cold") + ", " + run.process.getDurationMillis() + "ms]";
+
+        // Report files only carry whole seconds on some file systems
+        long reportsSince = buildStartMillis / 1000 * 1000;
+        BuildSummary summary;
+        if (run.logFile != null) {
+            try (Stream<String> lines = Files.lines(run.logFile)) {
+                summary = BuildResultParser.parse(mavenCommand.trim(), run.process.getExitCode(), run.process.isTimedOut(),
+                        lines::iterator, run.process.getTail(), baseDir, reportsSince);
+            }
+            summary.setLog(logReference, (int) run.process.getLineCount());
+        } else {
+            summary = BuildResultParser.parse(mavenCommand.trim(), run.process.getExitCode(), run.process.isTimedOut(),
+                    run.process.getTail(), run.process.getTail(), baseDir, reportsSince);
+        }
+        if (coversAllTests && summary.isSuccess()) {
+            greenCursors.put(baseDir, cursorAtStart);
+        }
+        // Failures may come from flaky tests or remote repositories, so only successes are replayed
+        if (fingerprint != null && summary.isSuccess()) {
+            BuildResultCache.put(fingerprint, summary, run.process.getDurationMillis());
+        }
+        return summary.format(timing);
+    }
+
+    private static String running(BuildExecutor.BuildJob job) {
+        StringBuilder result = new StringBuilder();
+        result.append("Build ").append(job.getId()).append(" still running after ").append(job.getElapsedMillis() / 1000)
+              .append("s: mvn ").append(job.getCommand()).append("\n");
+        List<String> tail = job.tail(POLL_TAIL_LINES);
+        if (!tail.isEmpty()) {
+            result.append("Last ").append(tail.size()).append(" lines of output:\n");
+            for (String line : tail) {
+                result.append("  ").append(line).append("\n");
+            }
+        }
+        return result.toString();
+    }
+
+    @Tool("Reads a range of lines from a full Maven build log referenced in a build summary")
+    public String readBuildLog(@P("The log reference from the build summary (e.g. '.build-logs/build-20240101-120000-000.log')") String logReference,
+                               @P("First line to read, 1-based") int fromLine,
+                               @P("Last line to read, inclusive") int toLine) {
+        try {
+            Path logDir = baseDir.resolve(BUILD_LOG_DIR);
+            Path logFile = baseDir.resolve(logReference).normalize();
+            if (!logFile.startsWith(logDir)) {
+                return "Error: Not a build log reference: " + logReference;
+            }
+            if (!Files.exists(logFile)) {
+                return "Error: Build log does not exist (only the latest " + MAX_BUILD_LOGS + " logs are kept): " + logReference;
+            }
+            List<String> lines = Files.readAllLines(logFile);
+            int from = Math.max(1, fromLine);
+            if (from > lines.size()) {
+                return "Error: The log has only " + lines.size() + " lines";
+            }
+            int to = Math.min(Math.min(lines.size(), toLine), from + MAX_LOG_LINES_PER_READ - 1);
+            StringBuilder result = new StringBuilder();
+            result.append("Lines ").append(from).append("-").append(to).append(" of ").append(lines.size())
+                  .append(" in ").append(logReference).append(":\n");
+            for (int i = from; i <= to; i++) {
+                result.append(i).append(": ").append(lines.get(i - 1)).append("\n");
+            }
+            return result.toString();
+        } catch (IOException e) {
+            return "Error reading build log " + logReference + ": " + e.getMessage();
+        }
+    }
+
+    // Creates the log file of the next build, keeping only the latest logs
+    private Path newLogFile() {
+        Path logDir = baseDir.resolve(BUILD_LOG_DIR);
+        try {
+            Files.createDirectories(logDir);
+            Path logFile = logDir.resolve("build-" + LocalDateTime.now().format(LOG_NAME_FORMAT) + ".log");
+
+            List<Path> logs;
+            try (Stream<Path> stream = Files.list(logDir)) {
+                logs = stream.filter(path -> path.getFileName().toString().startsWith("build-"))
+                        .sorted()
+                        .collect(Collectors.toList());
+            }
+            for (int i = 0; i < logs.size() - MAX_BUILD_LOGS + 1; i++) {
+                Files.deleteIfExists(logs.get(i));
+            }
+            return logFile;
+        } catch (IOException e) {
+            System.err.println("Warning: Failed to create build log: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private MavenRun launch(BuildExecutor.BuildJob job, String executable, List<String> arguments)
+            throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(executable);
+        command.addAll(arguments);
+
+        if (MAVEN_DAEMON.equals(executable)) {
+            command.add(1, DAEMON_STORAGE_PROPERTY + daemonStorage());
+        }
+
+        ProcessBuilder processBuilder = new ProcessBuilder(command);
+        processBuilder.directory(baseDir.toFile());
+        if (MAVEN.equals(executable) && "true".equalsIgnoreCase(System.getenv(FAST_STARTUP_ENV))
+                && !processBuilder.environment().containsKey("MAVEN_OPTS")) {
+            processBuilder.environment().put("MAVEN_OPTS", COLD_MAVEN_OPTS);
+        }
+
+        Path logFile = newLogFile();
+        BuildExecutor.ProcessRun process = BuildExecutor.run(job, processBuilder, logFile, BUILD_DEADLINE);
+        String mode = MAVEN_DAEMON.equals(executable) ? "daemon" : "fresh-process";
+        if (MAVEN_DAEMON.equals(executable) && (process.isTimedOut() || process.isCancelled())) {
+            stopDaemon();
+        }
+        return new MavenRun(mode, process, logFile);
+    }
+
+    // Killing the mvnd client leaves its build running in the daemon, which is not one of the client's
+    // descendants. Builds of a project directory never overlap, so the daemons of its registry serve
+    // no other build and can be stopped; the next build starts a new one.
+    private void stopDaemon() throws InterruptedException {
+        System.err.println("Warning: Stopping the Maven daemon of " + baseDir + " after an interrupted build");
+        try {
+            Process stop = new ProcessBuilder(MAVEN_DAEMON, DAEMON_STORAGE_PROPERTY + daemonStorage(), "--stop")
+                    .redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+            if (!stop.waitFor(DAEMON_STOP_SECONDS, TimeUnit.SECONDS)) {
+                stop.destroyForcibly();
+                System.err.println("Warning: Maven daemon did not stop within " + DAEMON_STOP_SECONDS + "s");
+            }
+        } catch (IOException e) {
+            System.err.println("Warning: Could not stop Maven daemon: " + e.getMessage());
+        }
+    }
+
+    private Path daemonStorage() {
+        return Paths.get(System.getProperty("java.io.tmpdir"), "agents-mvnd", FileContentCache.hash(baseDir.toString()));
+    }
+
+    // Only checks are cached: a cache hit skips the build, so goals whose effect is the point
+    // (package, verify, install, exec:, plugin goals) always run; clean only touches target, whose
+    // classes are checked before a hit is returned
+    private static final Set<String> CACHEABLE_GOALS = Set.of("clean", "validate", "compile", "test-compile", "test");
+    // Options whose value is the next argument
+    private static final Set<String> OPTIONS_WITH_VALUE = Set.of("-pl", "--projects", "-f", "--file", "-s", "--settings",
+            "-gs", "--global-settings", "-P", "--activate-profiles", "-T", "--threads", "-rf", "--resume-from");
+
+    private static boolean cacheable(String mavenCommand) {
+        boolean check = false;
+        String[] arguments = mavenCommand.trim().split("\\s+");
+        for (int i = 0; i < arguments.length; i++) {
+            String argument = arguments[i];
+            if (OPTIONS_WITH_VALUE.contains(argument)) {
+                i++;
+            } else if (!argument.startsWith("-")) {
+                if (!CACHEABLE_GOALS.contains(argument)) {
+                    return false;
+                }
+                check |= !argument.equals("clean");
+            }
+        }
+        return check;
+    }
+
+    // target is not part of the fingerprint, so a clean since the cached run must force a build:
+    // the compiled classes of the goals are expected in target, which other tools read too
+    private boolean outputsPresent(String mavenCommand) {
+        List<String> goals = Arrays.asList(mavenCommand.trim().split("\\s+"));
+        boolean compiles = goals.contains("compile") || goals.contains("test-compile") || goals.contains("test");
+        boolean compilesTests = goals.contains("test-compile") || goals.contains("test");
+        return (!compiles || !Files.isDirectory(baseDir.resolve("src/main/java")) || Files.isDirectory(baseDir.resolve("target/classes")))
+                && (!compilesTests || !Files.isDirectory(baseDir.resolve("src/test/java")) || Files.isDirectory(baseDir.resolve("target/test-classes")));
+    }
+
+    private String fingerprint(String mavenCommand) {
+        try {
+            return BuildResultCache.fingerprint(baseDir, mavenCommand);
+        } catch (IOException e) {
+            System.err.println("Warning: Could not fingerprint the build inputs, running without cache: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Whether a successful run of the command means that every test passed
+    private static boolean runsAllTests(String mavenCommand) {
+        boolean testGoal = false;
+        for (String argument : mavenCommand.trim().split("\\s+")) {
+            if (argument.startsWith("-Dtest=") || argument.startsWith("-DskipTests") || argument.startsWith("-Dmaven.test.skip")
+                    || argument.startsWith("-Dit.test=")) {
+                return false;
+            }
+            testGoal |= TEST_GOALS.contains(argument);
+        }
+        return testGoal;
+    }
+
+    // The daemon is used when it is on the PATH, not disabled, and has not failed within the cool-down
+    private static boolean useDaemon() {
+        Boolean installed = daemonInstalled;
+        if (installed == null) {
+            installed = !"false".equalsIgnoreCase(System.getenv(DAEMON_ENV)) && isOnPath(MAVEN_DAEMON);
+            daemonInstalled = installed;
+        }
+        return installed && System.currentTimeMillis() >= daemonRetryAtMillis;
+    }
+
+    private static boolean isOnPath(String executable) {
+        String path = System.getenv("PATH");
+        if (path == null) {
+            return false;
+        }
+        for (String dir : path.split(File.pathSeparator)) {
+            if (dir.isEmpty()) {
+                continue;
+            }
+            for (String candidate : List.of(executable, executable + ".cmd", executable + ".exe")) {
+                if (Files.isExecutable(Paths.get(dir, candidate))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
 }
@@ -0,0 +1,202 @@
+package com.github.dloiacono.ai.agents.tools;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Applies unified diffs or SEARCH/REPLACE blocks to text content in memory.
+ * All hunks or blocks are applied to a working copy, so either every change applies
+ * or an IllegalArgumentException describing the first failing change is thrown and
+ * the original content is left untouched.
+ */
+public class PatchApplier {
+
+    private static final Pattern HUNK_HEADER = Pattern.compile("^@@ -(\\d+)(?:,(\\d+))? \\+(\\d+)(?:,(\\d+))? @@.*$");
+    private static final String SEARCH_MARKER = "<<<<<<< SEARCH";
+    private static final String DIVIDER_MARKER = "=======";
+    private static final String REPLACE_MARKER = ">>>>>>> REPLACE";
+
+    private PatchApplier() {
+    }
+
+    /**
+     * Returns true if the patch is made of SEARCH/REPLACE blocks rather than a unified diff
+     */
+    public static boolean isSearchReplace(String patch) {
+        return patch.lines().anyMatch(line -> line.trim().equals(SEARCH_MARKER));
+    }
+
+    /**
+     * Applies the patch, detecting its format, and returns the patched content
+     */
+    public static String apply(String original, String patch) {
+        if (patch == null || patch.isBlank()) {
+            throw new IllegalArgumentException("The patch is empty");
+        }
+        return isSearchReplace(patch) ? applySearchReplace(original, patch) : applyUnifiedDiff(original, patch);
+    }
+
+    /**
+     * Applies SEARCH/REPLACE blocks. Each search text must occur exactly once in the content
+     * as it is after the previous blocks were applied.
+     */
+    public static String applySearchReplace(String original, String patch) {
+        String content = original;
+        List<String> lines = patch.lines().toList();
+        int block = 0;
+        int i = 0;
+        while (i < lines.size()) {
+            if (!lines.get(i).trim().equals(SEARCH_MARKER)) {
+                i++;
+                continue;
+            }
+            block++;
+            StringBuilder search = new StringBuilder();
+            StringBuilder replace = new StringBuilder();
+            i++;
+            while (i < lines.size() && !lines.get(i).trim().equals(DIVIDER_MARKER)) {
+                search.append(lines.get(i++)).append('\n');
+            }
+            if (i == lines.size()) {
+                throw new IllegalArgumentException("Block " + block + ": missing " + DIVIDER_MARKER + " line");
+            }
+            i++;
+            while (i < lines.size() && !lines.get(i).trim().equals(REPLACE_MARKER)) {
+                replace.append(lines.get(i++)).append('\n');
+            }
+            if (i == lines.size()) {
+                throw new IllegalArgumentException("Block " + block + ": missing " + REPLACE_MARKER + " line");
+            }
+            i++;
+
+            String searchText = search.toString();
+            String replaceText = replace.toString();
+            if (searchText.isEmpty()) {
+                throw new IllegalArgumentException("Block " + block + ": the SEARCH section is empty");
+            }
+            // The last line of a file may have no trailing newline
+            if (!content.contains(searchText) && content.endsWith(searchText.substring(0, searchText.length() - 1))) {
+                searchText = searchText.substring(0, searchText.length() - 1);
+                replaceText = replaceText.isEmpty() ? replaceText : replaceText.substring(0, replaceText.length() - 1);
+            }
+            int first = content.indexOf(searchText);
+            if (first < 0) {
+                throw new IllegalArgumentException("Block " + block + ": SEARCH text not found in file");
+            }
+            if (content.indexOf(searchText, first + 1) >= 0) {
+                throw new IllegalArgumentException("Block " + block + ": SEARCH text occurs more than once, add more context lines");
+            }
+            content = content.substring(0, first) + replaceText + content.substring(first + searchText.length());
+        }
+        if (block == 0) {
+            throw new IllegalArgumentException("No SEARCH/REPLACE blocks found");
+        }
+        return content;
+    }
+
+    /**
+     * Applies a unified diff. Hunks are located at their stated line first and, if the
+     * context does not match there, at the nearest position where it does.
+     */
+    public static String applyUnifiedDiff(String original, String patch) {
+        boolean trailingNewline = original.isEmpty() || original.endsWith("\n");
+        List<String> content = new ArrayList<>(original.isEmpty()
+                ? List.of()
+                : Arrays.asList((trailingNewline ? original.substring(0, original.length() - 1) : original).split("\n", -1)));
+
+        List<String> patchLines = patch.lines().toList();
+        int offset = 0;
+        int hunkCount = 0;
+        int i = 0;
+        while (i < patchLines.size()) {
+            Matcher header = HUNK_HEADER.matcher(patchLines.get(i));
+            if (!header.matches()) {
+                i++;
+                continue;
+            }
+            hunkCount++;
+            int oldStart = Integer.parseInt(header.group(1));
+            i++;
+
+            List<String> oldLines = new ArrayList<>();
+            List<String> newLines = new ArrayList<>();
+            while (i < patchLines.size() && !patchLines.get(i).startsWith("@@")
+                    && !isFileHeader(patchLines, i) && !patchLines.get(i).startsWith("diff ")) {
+                String line = patchLines.get(i++);
+                if (line.startsWith("\\")) {
+                    // "\ No newline at end of file"
+                    continue;
+                }
+                char kind = line.isEmpty() ? ' ' : line.charAt(0);
+                String text = line.isEmpty() ? "" : line.substring(1);
+                if (kind == ' ') {
+                    oldLines.add(text);
+                    newLines.add(text);
+                } else if (kind == '-') {
+                    oldLines.add(text);
+                } else if (kind == '+') {
+                    newLines.add(text);
+                } else {
+                    throw new IllegalArgumentException("Hunk " + hunkCount + ": unexpected line '" + line + "'");
+                }
+            }
+
+            // For pure insertions the old start is the line after which the new lines go
+            int expected = (oldLines.isEmpty() ? oldStart : oldStart - 1) + offset;
+            int position = locate(content, oldLines, expected);
+            if (position < 0) {
+                throw new IllegalArgumentException("Hunk " + hunkCount + " (@@ -" + oldStart
+                        + ") does not match the file content, re-read the file and regenerate the patch");
+            }
+            for (int removed = 0; removed < oldLines.size(); removed++) {
+                content.remove(position);
+            }
+            content.addAll(position, newLines);
+            offset += newLines.size() - oldLines.size() + (position - expected);
+        }
+        if (hunkCount == 0) {
+            throw new IllegalArgumentException("No unified diff hunks (@@ ... @@) found");
+        }
+        String result = String.join("\n", content);
+        return trailingNewline && !content.isEmpty() ? result + "\n" : result;
+    }
+
+    // A "--- " line only starts a new file section when followed by "+++ ", otherwise it is a removed "-- " line
+    private static boolean isFileHeader(List<String> patchLines, int index) {
+        return patchLines.get(index).startsWith("--- ")
+                && index + 1 < patchLines.size() && patchLines.get(index + 1).startsWith("+++ ");
+    }
+
+    // Finds the closest index to expected where the old lines match exactly, or -1
+    private static int locate(List<String> content, List<String> oldLines, int expected) {
+        int max = content.size() - oldLines.size();
+        if (max < 0) {
+            return -1;
+        }
+        int start = Math.max(0, Math.min(expected, max));
+        for (int distance = 0; distance <= max; distance++) {
+            if (start - distance >= 0 && matchesAt(content, oldLines, start - distance)) {
+                return start - distance;
+            }
+            if (distance > 0 && start + distance <= max && matchesAt(content, oldLines, start + distance)) {
+                return start + distance;
+            }
+            if (start - distance < 0 && start + distance > max) {
+                break;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean matchesAt(List<String> content, List<String> oldLines, int index) {
+        for (int j = 0; j < oldLines.size(); j++) {
+            if (!content.get(index + j).equals(oldLines.get(j))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
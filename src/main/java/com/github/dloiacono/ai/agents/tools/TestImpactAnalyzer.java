@@ -0,0 +1,239 @@
+package com.github.dloiacono.ai.agents.tools;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Selects the test classes affected by a set of changed files.
+ * A class dependency map is read from the constant pools of the compiled classes in
+ * target/classes and target/test-classes, and the tests that transitively depend on a
+ * changed class are selected. Changes that bytecode cannot track (pom.xml, resources,
+ * multi-module projects, no compiled classes yet) require a full run instead.
+ * Constants inlined by javac are not visible in bytecode, so a full run is still
+ * advisable before finishing.
+ */
+public class TestImpactAnalyzer {
+
+    private static final String MAIN_SOURCES = "src/main/java/";
+    private static final String TEST_SOURCES = "src/test/java/";
+    // Default surefire includes
+    private static final Pattern TEST_CLASS_NAME = Pattern.compile("(Test.*|.*Test|.*Tests|.*TestCase)");
+    // Class references inside descriptors and signatures, e.g. "(Ldemo/Calc;)V"
+    private static final Pattern DESCRIPTOR_REFERENCE = Pattern.compile("L([\\w/$]+)[;<]");
+
+    private final Path baseDir;
+    // Parsed dependencies per class file, reused while the file is unchanged
+    private final Map<Path, ParsedClass> parsedClasses = new ConcurrentHashMap<>();
+
+    public TestImpactAnalyzer(Path baseDir) {
+        this.baseDir = baseDir;
+    }
+
+    private static final class ParsedClass {
+        private final long lastModified;
+        private final long size;
+        private final Set<String> references;
+
+        private ParsedClass(long lastModified, long size, Set<String> references) {
+            this.lastModified = lastModified;
+            this.size = size;
+            this.references = references;
+        }
+    }
+
+    /**
+     * Either the affected test classes or the reason why all tests must run
+     */
+    public static class Selection {
+        private final Set<String> testClasses;
+        private final String fullRunReason;
+
+        private Selection(Set<String> testClasses, String fullRunReason) {
+            this.testClasses = testClasses;
+            this.fullRunReason = fullRunReason;
+        }
+
+        static Selection tests(Set<String> testClasses) {
+            return new Selection(testClasses, null);
+        }
+
+        static Selection fullRun(String reason) {
+            return new Selection(Set.of(), reason);
+        }
+
+        public boolean isFullRun() { return fullRunReason != null; }
+        public String getFullRunReason() { return fullRunReason; }
+        public Set<String> getTestClasses() { return testClasses; }
+    }
+
+    /**
+     * Selects the tests affected by the given project-relative paths
+     */
+    public Selection select(Collection<String> changedPaths) throws IOException {
+        if (!Files.isDirectory(baseDir.resolve("target/test-classes"))) {
+            return Selection.fullRun("no compiled test classes yet");
+        }
+        Path pom = baseDir.resolve("pom.xml");
+        if (Files.exists(pom) && Files.readString(pom).contains("<modules>")) {
+            return Selection.fullRun("multi-module projects are not analyzed");
+        }
+
+        Set<String> changedClasses = new HashSet<>();
+        Set<String> changedTests = new TreeSet<>();
+        for (String changedPath : changedPaths) {
+            String path = changedPath.replace('\\', '/');
+            if (path.endsWith(".java") && (path.startsWith(MAIN_SOURCES) || path.startsWith(TEST_SOURCES))) {
+                String sourceRoot = path.startsWith(MAIN_SOURCES) ? MAIN_SOURCES : TEST_SOURCES;
+                String className = path.substring(sourceRoot.length(), path.length() - ".java".length()).replace('/', '.');
+                changedClasses.add(className);
+                if (path.startsWith(TEST_SOURCES) && isTestClass(className)) {
+                    changedTests.add(className);
+                }
+            } else if (path.equals("pom.xml") || path.startsWith("src/")) {
+                return Selection.fullRun(path + " changed");
+            }
+            // Documentation and frontend files do not affect the Java tests
+        }
+        if (changedClasses.isEmpty()) {
+            return Selection.tests(changedTests);
+        }
+
+        Set<String> testClasses = new HashSet<>();
+        for (String className : dependentsOf(changedClasses, testClasses)) {
+            if (testClasses.contains(className)) {
+                changedTests.add(className);
+            }
+        }
+        return Selection.tests(changedTests);
+    }
+
+    /**
+     * Returns the given top-level classes plus every compiled class that transitively depends on them
+     * @param testClasses filled with the test classes found in target/test-classes, may be null
+     */
+    public Set<String> dependentsOf(Collection<String> classNames, Set<String> testClasses) throws IOException {
+        Map<String, Set<String>> dependents = new HashMap<>();
+        readDependencies(baseDir.resolve("target/classes"), dependents, null);
+        readDependencies(baseDir.resolve("target/test-classes"), dependents, testClasses == null ? new HashSet<>() : testClasses);
+
+        // Walk the reverse dependencies from every given top-level class
+        Set<String> visited = new HashSet<>();
+        Deque<String> pending = new ArrayDeque<>(classNames);
+        while (!pending.isEmpty()) {
+            String className = pending.poll();
+            if (visited.add(className)) {
+                pending.addAll(dependents.getOrDefault(className, Set.of()));
+            }
+        }
+        return visited;
+    }
+
+    // Adds an edge from every referenced top-level class to the referencing top-level class
+    private void readDependencies(Path classesDir, Map<String, Set<String>> dependents, Set<String> testClasses) throws IOException {
+        if (!Files.isDirectory(classesDir)) {
+            return;
+        }
+        List<Path> classFiles;
+        try (Stream<Path> stream = Files.walk(classesDir)) {
+            classFiles = stream.filter(path -> path.toString().endsWith(".class")).collect(Collectors.toList());
+        }
+        for (Path classFile : classFiles) {
+            String relative = classesDir.relativize(classFile).toString().replace('\\', '/');
+            String className = topLevel(relative.substring(0, relative.length() - ".class".length()).replace('/', '.'));
+            if (testClasses != null && isTestClass(className)) {
+                testClasses.add(className);
+            }
+            for (String reference : references(classFile)) {
+                String referenced = topLevel(reference.replace('/', '.'));
+                if (!referenced.equals(className)) {
+                    dependents.computeIfAbsent(referenced, c -> new HashSet<>()).add(className);
+                }
+            }
+        }
+    }
+
+    private Set<String> references(Path classFile) throws IOException {
+        long lastModified = Files.getLastModifiedTime(classFile).toMillis();
+        long size = Files.size(classFile);
+        ParsedClass parsed = parsedClasses.get(classFile);
+        if (parsed == null || parsed.lastModified != lastModified || parsed.size != size) {
+            parsed = new ParsedClass(lastModified, size, parseReferences(Files.readAllBytes(classFile)));
+            parsedClasses.put(classFile, parsed);
+        }
+        return parsed.references;
+    }
+
+    /**
+     * Reads the classes referenced from the constant pool: class entries plus the
+     * types named in field, method and generic signature descriptors
+     */
+    static Set<String> parseReferences(byte[] bytes) throws IOException {
+        Set<String> references = new HashSet<>();
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        if (in.readInt() != 0xCAFEBABE) {
+            return references;
+        }
+        in.readUnsignedShort(); // minor version
+        in.readUnsignedShort(); // major version
+        int count = in.readUnsignedShort();
+        String[] utf8 = new String[count];
+        int[] classNameIndexes = new int[count];
+        int classCount = 0;
+        for (int i = 1; i < count; i++) {
+            int tag = in.readUnsignedByte();
+            switch (tag) {
+                case 1 -> utf8[i] = in.readUTF();
+                case 7 -> classNameIndexes[classCount++] = in.readUnsignedShort();
+                case 8, 16, 19, 20 -> in.skipBytes(2);
+                case 15 -> in.skipBytes(3);
+                case 3, 4, 9, 10, 11, 12, 17, 18 -> in.skipBytes(4);
+                case 5, 6 -> {
+                    in.skipBytes(8);
+                    i++; // long and double take two entries
+                }
+                default -> throw new IOException("Unknown constant pool tag " + tag);
+            }
+        }
+        for (int c = 0; c < classCount; c++) {
+            String name = utf8[classNameIndexes[c]];
+            if (name != null && !name.startsWith("[")) {
+                references.add(name);
+            }
+        }
+        for (String value : utf8) {
+            if (value != null && value.indexOf(';') > 0) {
+                Matcher matcher = DESCRIPTOR_REFERENCE.matcher(value);
+                while (matcher.find()) {
+                    references.add(matcher.group(1));
+                }
+            }
+        }
+        return references;
+    }
+
+    private static String topLevel(String className) {
+        int nested = className.indexOf('$');
+        return nested > 0 ? className.substring(0, nested) : className;
+    }
+
+    private static boolean isTestClass(String className) {
+        return TEST_CLASS_NAME.matcher(className.substring(className.lastIndexOf('.') + 1)).matches();
+    }
+}
@@ -0,0 +1,185 @@
+package com.github.dloiacono.ai.agents.tools;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Journal of the changes made to a generated project through the file tools, one per project
+ * directory and shared by all the tools working on it.
+ * Every write, append and delete gets a monotonic sequence number and the hash of the
+ * resulting content, so an agent can ask for only the files changed since the cursor it
+ * saw last instead of re-reading the whole project. The journal is appended to a log file
+ * in the project's .agent-memory directory and reloaded on startup, so cursors stay valid
+ * across runs. Only the latest change of a path matters for {@link #changesSince(long)}, so
+ * once most entries are superseded they are dropped and the log file is rewritten; the
+ * journal then grows with the number of paths, not with the number of changes.
+ */
+public class WorkspaceJournal {
+
+    private static final String JOURNAL_FILE = ".agent-memory/workspace_journal.log";
+    private static final int MIN_COMPACTION_SIZE = 1000;
+
+    public enum Operation { WRITE, APPEND, DELETE }
+
+    /**
+     * A single journal entry
+     */
+    public static class Change {
+        private final long sequence;
+        private final Operation operation;
+        private final String path;
+        private final String hash;
+        private final long timestamp;
+
+        public Change(long sequence, Operation operation, String path, String hash, long timestamp) {
+            this.sequence = sequence;
+            this.operation = operation;
+            this.path = path;
+            this.hash = hash;
+            this.timestamp = timestamp;
+        }
+
+        public long getSequence() { return sequence; }
+        public Operation getOperation() { return operation; }
+        public String getPath() { return path; }
+        public String getHash() { return hash; }
+        public long getTimestamp() { return timestamp; }
+    }
+
+    private static final Map<Path, WorkspaceJournal> journals = new ConcurrentHashMap<>();
+
+    private final Path journalFile;
+    private final List<Change> changes = new ArrayList<>();
+    private long sequence = 0;
+    // Size of the entry list at which superseded entries are dropped next
+    private int compactionSize = MIN_COMPACTION_SIZE;
+
+    private WorkspaceJournal(Path projectRoot) {
+        this.journalFile = projectRoot.resolve(JOURNAL_FILE);
+        load();
+        compactIfNeeded();
+    }
+
+    /**
+     * The journal of the project in the given directory
+     */
+    public static WorkspaceJournal forProject(Path projectRoot) {
+        return journals.computeIfAbsent(projectRoot.toAbsolutePath().normalize(), WorkspaceJournal::new);
+    }
+
+    /**
+     * Records a change and returns its sequence number
+     * @param content the full file content after the change, or null for deletes
+     */
+    public synchronized long record(Operation operation, String relativePath, String content) {
+        Change change = new Change(++sequence, operation, relativePath.replace('\\', '/'),
+                content == null ? "-" : FileContentCache.hash(content), System.currentTimeMillis());
+        changes.add(change);
+        append(change);
+        compactIfNeeded();
+        return change.getSequence();
+    }
+
+    /**
+     * The sequence number of the latest change, to be used as the next cursor
+     */
+    public synchronized long currentSequence() {
+        return sequence;
+    }
+
+    /**
+     * Returns the latest change of every path changed after the cursor, in sequence order
+     */
+    public synchronized List<Change> changesSince(long cursor) {
+        Map<String, Change> latest = new LinkedHashMap<>();
+        for (int i = changes.size() - 1; i >= 0 && changes.get(i).getSequence() > cursor; i--) {
+            latest.putIfAbsent(changes.get(i).getPath(), changes.get(i));
+        }
+        List<Change> result = new ArrayList<>(latest.values());
+        result.sort((a, b) -> Long.compare(a.getSequence(), b.getSequence()));
+        return result;
+    }
+
+    private void append(Change change) {
+        try {
+            Files.createDirectories(journalFile.getParent());
+            Files.writeString(journalFile, line(change),
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            // The in-memory journal still works, only persistence across runs is lost
+            System.err.println("Warning: Failed to persist workspace journal entry: " + e.getMessage());
+        }
+    }
+
+    // Keeps only the latest change of every path, which gives the same answer for every cursor
+    private void compactIfNeeded() {
+        if (changes.size() < compactionSize) {
+            return;
+        }
+        Map<String, Long> latest = new HashMap<>();
+        for (Change change : changes) {
+            latest.put(change.getPath(), change.getSequence());
+        }
+        if (latest.size() * 2 <= changes.size()) {
+            changes.removeIf(change -> latest.get(change.getPath()) != change.getSequence());
+            rewrite();
+        }
+        compactionSize = Math.max(MIN_COMPACTION_SIZE, changes.size() * 2);
+    }
+
+    private void rewrite() {
+        StringBuilder lines = new StringBuilder();
+        for (Change change : changes) {
+            lines.append(line(change));
+        }
+        try {
+            Files.createDirectories(journalFile.getParent());
+            Path temp = Files.createTempFile(journalFile.getParent(), journalFile.getFileName() + ".", ".tmp");
+            Files.writeString(temp, lines);
+            try {
+                Files.move(temp, journalFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, journalFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            // The full log stays valid, it is only compacted again on the next start
+            System.err.println("Warning: Failed to compact workspace journal: " + e.getMessage());
+        }
+    }
+
+    private static String line(Change change) {
+        return change.getSequence() + "\t" + change.getOperation() + "\t" + change.getHash() + "\t"
+                + change.getTimestamp() + "\t" + change.getPath() + "\n";
+    }
+
+    private void load() {
+        if (!Files.exists(journalFile)) {
+            return;
+        }
+        try {
+            for (String line : Files.readAllLines(journalFile)) {
+                String[] fields = line.split("\t", 5);
+                if (fields.length < 5) {
+                    continue;
+                }
+                Change change = new Change(Long.parseLong(fields[0]), Operation.valueOf(fields[1]), fields[4],
+                        fields[2], Long.parseLong(fields[3]));
+                changes.add(change);
+                sequence = Math.max(sequence, change.getSequence());
+            }
+        } catch (Exception e) {
+            System.err.println("Warning: Failed to load workspace journal " + journalFile + ": " + e.getMessage());
+        }
+    }
+}
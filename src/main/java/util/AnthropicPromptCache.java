@@ -0,0 +1,172 @@
+package util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import dev.langchain4j.http.client.HttpClient;
+import dev.langchain4j.http.client.HttpClientBuilder;
+import dev.langchain4j.http.client.HttpClientBuilderLoader;
+import dev.langchain4j.http.client.HttpRequest;
+import dev.langchain4j.http.client.SuccessfulHttpResponse;
+import dev.langchain4j.http.client.sse.ServerSentEventListener;
+import dev.langchain4j.http.client.sse.ServerSentEventParser;
+import dev.langchain4j.model.anthropic.AnthropicTokenUsage;
+import dev.langchain4j.model.chat.listener.ChatModelListener;
+import dev.langchain4j.model.chat.listener.ChatModelResponseContext;
+import dev.langchain4j.model.output.TokenUsage;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * Anthropic prompt caching support for {@link ChatModelProvider}.
+ * The Anthropic model marks the system prompt and the tool definitions as cacheable itself; the
+ * HTTP client returned here also marks the last content block of the conversation, so the whole
+ * stable history prefix is written to the cache once and read back on the following turn.
+ * That makes three of the four cache breakpoints a request may carry. The listener collects
+ * the cache write and cache read token counts reported in the usage of each response.
+ */
+public class AnthropicPromptCache {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    // Thinking blocks cannot carry a cache breakpoint
+    private static final Set<String> CACHEABLE_BLOCKS = Set.of("text", "image", "document", "tool_use", "tool_result");
+
+    private static long responses = 0;
+    private static long inputTokens = 0;
+    private static long cacheWriteTokens = 0;
+    private static long cacheReadTokens = 0;
+
+    private AnthropicPromptCache() {
+    }
+
+    /**
+     * Builder of the default HTTP client whose requests mark the conversation history as cacheable
+     */
+    public static HttpClientBuilder httpClientBuilder() {
+        return httpClientBuilder(HttpClientBuilderLoader.loadHttpClientBuilder());
+    }
+
+    /**
+     * Builder of an HTTP client that marks the conversation history as cacheable and sends the requests through the given builder's client
+     */
+    public static HttpClientBuilder httpClientBuilder(HttpClientBuilder delegate) {
+        return new HttpClientBuilder() {
+            @Override
+            public Duration connectTimeout() {
+                return delegate.connectTimeout();
+            }
+
+            @Override
+            public HttpClientBuilder connectTimeout(Duration timeout) {
+                delegate.connectTimeout(timeout);
+                return this;
+            }
+
+            @Override
+            public Duration readTimeout() {
+                return delegate.readTimeout();
+            }
+
+            @Override
+            public HttpClientBuilder readTimeout(Duration timeout) {
+                delegate.readTimeout(timeout);
+                return this;
+            }
+
+            @Override
+            public HttpClient build() {
+                HttpClient client = delegate.build();
+                return new HttpClient() {
+                    @Override
+                    public SuccessfulHttpResponse execute(HttpRequest request) {
+                        return client.execute(markHistory(request));
+                    }
+
+                    @Override
+                    public void execute(HttpRequest request, ServerSentEventParser parser, ServerSentEventListener listener) {
+                        client.execute(markHistory(request), parser, listener);
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Listener recording the token usage of every response, including the cache counters
+     */
+    public static ChatModelListener listener() {
+        return new ChatModelListener() {
+            @Override
+            public void onResponse(ChatModelResponseContext responseContext) {
+                record(responseContext.chatResponse().tokenUsage());
+            }
+        };
+    }
+
+    static synchronized void record(TokenUsage tokenUsage) {
+        if (tokenUsage == null) {
+            return;
+        }
+        responses++;
+        inputTokens += tokenUsage.inputTokenCount() == null ? 0 : tokenUsage.inputTokenCount();
+        if (tokenUsage instanceof AnthropicTokenUsage anthropicUsage) {
+            cacheWriteTokens += anthropicUsage.cacheCreationInputTokens() == null ? 0 : anthropicUsage.cacheCreationInputTokens();
+            cacheReadTokens += anthropicUsage.cacheReadInputTokens() == null ? 0 : anthropicUsage.cacheReadInputTokens();
+        }
+    }
+
+    public static synchronized String stats() {
+        // Anthropic reports the uncached input tokens separately from the cached ones
+        long totalInput = inputTokens + cacheWriteTokens + cacheReadTokens;
+        double readRate = totalInput == 0 ? 0 : (double) cacheReadTokens / totalInput * 100;
+        return "responses=" + responses + ", uncachedInputTokens=" + inputTokens + ", cacheWriteTokens=" + cacheWriteTokens
+                + ", cacheReadTokens=" + cacheReadTokens + ", cacheReadRate=" + String.format("%.1f%%", readRate);
+    }
+
+    /**
+     * Adds an ephemeral cache breakpoint to the last cacheable content block of the last message.
+     * Requests that are not message creations, or that cannot be parsed, are sent unchanged.
+     */
+    static HttpRequest markHistory(HttpRequest request) {
+        if (request.body() == null || !request.url().endsWith("/messages")) {
+            return request;
+        }
+        try {
+            JsonNode body = objectMapper.readTree(request.body());
+            JsonNode messages = body.path("messages");
+            if (!messages.isArray() || messages.isEmpty()) {
+                return request;
+            }
+            ObjectNode lastMessage = (ObjectNode) messages.get(messages.size() - 1);
+            JsonNode content = lastMessage.path("content");
+            if (content.isTextual()) {
+                ArrayNode blocks = objectMapper.createArrayNode();
+                blocks.addObject().put("type", "text").put("text", content.asText());
+                lastMessage.set("content", blocks);
+                content = blocks;
+            }
+            if (!content.isArray()) {
+                return request;
+            }
+            for (int i = content.size() - 1; i >= 0; i--) {
+                JsonNode block = content.get(i);
+                if (block.isObject() && CACHEABLE_BLOCKS.contains(block.path("type").asText())) {
+                    ((ObjectNode) block).putObject("cache_control").put("type", "ephemeral");
+                    return HttpRequest.builder()
+                            .method(request.method())
+                            .url(request.url())
+                            .headers(request.headers())
+                            .body(objectMapper.writeValueAsString(body))
+                            .build();
+                }
+            }
+            return request;
+        } catch (IOException | ClassCastException e) {
+            System.err.println("Warning: Failed to mark the conversation as cacheable: " + e.getMessage());
+            return request;
+        }
+    }
+}
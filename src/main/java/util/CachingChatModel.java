@@ -0,0 +1,259 @@
+package util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessageDeserializer;
+import dev.langchain4j.data.message.ChatMessageSerializer;
+import dev.langchain4j.model.ModelProvider;
+import dev.langchain4j.model.chat.Capability;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.listener.ChatModelListener;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.ChatRequestParameters;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.output.FinishReason;
+import dev.langchain4j.model.output.TokenUsage;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * ChatModel decorator that replays previous responses to identical requests.
+ * The key is a SHA-256 over the agent name, the messages serialized to JSON and the
+ * effective request parameters: the delegate's default parameters overridden by the
+ * request's, which together carry the model name, sampling settings and tool
+ * specifications. Responses are kept in a bounded in-memory LRU shared by all instances
+ * and in one JSON file per key on disk, so they survive restarts. Entries older than
+ * the TTL are ignored and removed. Truncated or filtered responses are never cached.
+ */
+public class CachingChatModel implements ChatModel {
+
+    public static final String DEFAULT_CACHE_DIR = "./generated-project/.agent-memory/llm-cache";
+    private static final int MAX_MEMORY_ENTRIES = 256;
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private static final class Entry {
+        private final ChatResponse response;
+        private final long createdAt;
+        private final long latencyMillis;
+
+        private Entry(ChatResponse response, long createdAt, long latencyMillis) {
+            this.response = response;
+            this.createdAt = createdAt;
+            this.latencyMillis = latencyMillis;
+        }
+    }
+
+    private static final Map<String, Entry> memory = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > MAX_MEMORY_ENTRIES;
+        }
+    };
+    private static long memoryHits = 0;
+    private static long diskHits = 0;
+    private static long misses = 0;
+    private static long millisSaved = 0;
+
+    private final ChatModel delegate;
+    private final String agentName;
+    private final Duration ttl;
+    private final Path cacheDir;
+
+    public CachingChatModel(ChatModel delegate, String agentName, Duration ttl) {
+        this(delegate, agentName, ttl, Paths.get(DEFAULT_CACHE_DIR));
+    }
+
+    public CachingChatModel(ChatModel delegate, String agentName, Duration ttl, Path cacheDir) {
+        this.delegate = delegate;
+        this.agentName = agentName;
+        this.ttl = ttl;
+        this.cacheDir = cacheDir.toAbsolutePath().normalize();
+    }
+
+    @Override
+    public ChatResponse chat(ChatRequest chatRequest) {
+        String key = key(chatRequest);
+        Entry entry = lookup(key);
+        if (entry != null) {
+            return entry.response;
+        }
+
+        long start = System.nanoTime();
+        ChatResponse response = delegate.chat(chatRequest);
+        long latencyMillis = (System.nanoTime() - start) / 1_000_000;
+        FinishReason finishReason = response.finishReason();
+        if (finishReason == null || finishReason == FinishReason.STOP || finishReason == FinishReason.TOOL_EXECUTION) {
+            store(key, new Entry(response, System.currentTimeMillis(), latencyMillis));
+        }
+        return response;
+    }
+
+    @Override
+    public ChatRequestParameters defaultRequestParameters() {
+        return delegate.defaultRequestParameters();
+    }
+
+    @Override
+    public List<ChatModelListener> listeners() {
+        // The delegate notifies its own listeners for the requests that reach it
+        return List.of();
+    }
+
+    @Override
+    public ModelProvider provider() {
+        return delegate.provider();
+    }
+
+    @Override
+    public Set<Capability> supportedCapabilities() {
+        return delegate.supportedCapabilities();
+    }
+
+    public static synchronized String stats() {
+        return "memoryHits=" + memoryHits + ", diskHits=" + diskHits + ", misses=" + misses
+                + ", latencySaved=" + millisSaved + "ms";
+    }
+
+    /**
+     * Clears the in-memory tier; the disk tier is kept
+     */
+    public static synchronized void clearMemory() {
+        memory.clear();
+    }
+
+    String key(ChatRequest chatRequest) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(agentName.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(ChatMessageSerializer.messagesToJson(chatRequest.messages()).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(String.valueOf(effectiveParameters(chatRequest)).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    // The request usually leaves the model name, maximum tokens and sampling settings unset,
+    // so the delegate's defaults must be part of the key for a model change to miss the cache
+    private ChatRequestParameters effectiveParameters(ChatRequest chatRequest) {
+        ChatRequestParameters defaults = delegate.defaultRequestParameters();
+        if (defaults == null) {
+            return chatRequest.parameters();
+        }
+        return chatRequest.parameters() == null ? defaults : defaults.overrideWith(chatRequest.parameters());
+    }
+
+    private Entry lookup(String key) {
+        long now = System.currentTimeMillis();
+        synchronized (CachingChatModel.class) {
+            Entry entry = memory.get(key);
+            if (entry != null && now - entry.createdAt <= ttl.toMillis()) {
+                memoryHits++;
+                millisSaved += entry.latencyMillis;
+                return entry;
+            }
+            if (entry != null) {
+                memory.remove(key);
+            }
+        }
+
+        Entry entry = readFromDisk(key, now);
+        synchronized (CachingChatModel.class) {
+            if (entry == null) {
+                misses++;
+                return null;
+            }
+            diskHits++;
+            millisSaved += entry.latencyMillis;
+            memory.put(key, entry);
+            return entry;
+        }
+    }
+
+    private void store(String key, Entry entry) {
+        synchronized (CachingChatModel.class) {
+            memory.put(key, entry);
+        }
+        try {
+            ObjectNode json = objectMapper.createObjectNode();
+            json.put("agent", agentName);
+            json.put("createdAt", entry.createdAt);
+            json.put("latencyMillis", entry.latencyMillis);
+            json.put("aiMessage", ChatMessageSerializer.messageToJson(entry.response.aiMessage()));
+            json.put("id", entry.response.id());
+            json.put("modelName", entry.response.modelName());
+            if (entry.response.finishReason() != null) {
+                json.put("finishReason", entry.response.finishReason().name());
+            }
+            TokenUsage tokenUsage = entry.response.tokenUsage();
+            if (tokenUsage != null) {
+                json.put("inputTokens", tokenUsage.inputTokenCount());
+                json.put("outputTokens", tokenUsage.outputTokenCount());
+            }
+
+            Files.createDirectories(cacheDir);
+            Path temp = Files.createTempFile(cacheDir, key, ".tmp");
+            Files.writeString(temp, objectMapper.writeValueAsString(json));
+            Files.move(temp, cacheFile(key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // The in-memory tier still works, only reuse across runs is lost
+            System.err.println("Warning: Failed to persist LLM cache entry: " + e.getMessage());
+        }
+    }
+
+    private Entry readFromDisk(String key, long now) {
+        Path file = cacheFile(key);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try {
+            JsonNode json = objectMapper.readTree(Files.readString(file));
+            long createdAt = json.path("createdAt").asLong();
+            if (now - createdAt > ttl.toMillis()) {
+                Files.deleteIfExists(file);
+                return null;
+            }
+            ChatResponse.Builder response = ChatResponse.builder()
+                    .aiMessage((AiMessage) ChatMessageDeserializer.messageFromJson(json.path("aiMessage").asText()));
+            if (json.hasNonNull("id")) {
+                response.id(json.get("id").asText());
+            }
+            if (json.hasNonNull("modelName")) {
+                response.modelName(json.get("modelName").asText());
+            }
+            if (json.hasNonNull("finishReason")) {
+                response.finishReason(FinishReason.valueOf(json.get("finishReason").asText()));
+            }
+            if (json.hasNonNull("inputTokens") || json.hasNonNull("outputTokens")) {
+                response.tokenUsage(new TokenUsage(
+                        json.hasNonNull("inputTokens") ? json.get("inputTokens").asInt() : null,
+                        json.hasNonNull("outputTokens") ? json.get("outputTokens").asInt() : null));
+            }
+            return new Entry(response.build(), createdAt, json.path("latencyMillis").asLong());
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Warning: Ignoring unreadable LLM cache entry " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private Path cacheFile(String key) {
+        return cacheDir.resolve(key + ".json");
+    }
+}
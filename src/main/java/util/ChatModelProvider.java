@@ -1,34 +1,281 @@
 package util;
 
+import dev.langchain4j.http.client.HttpClientBuilder;
+import dev.langchain4j.http.client.HttpClientBuilderLoader;
 import dev.langchain4j.model.anthropic.AnthropicChatModel;
+import dev.langchain4j.model.anthropic.AnthropicStreamingChatModel;
 import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.ChatRequestParameters;
+import dev.langchain4j.model.chat.response.ChatResponse;
 
 import java.time.Duration;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 
+/**
+ * Creates the chat models of the agents.
+ * Anthropic prompt caching is enabled unless AGENTS_PROMPT_CACHE=false, see {@link AnthropicPromptCache}.
+ * The {@link ModelRouter} gives each role of the team its own model, token limit and timeout.
+ * Every model reports its latency and tokens to {@link TeamMetrics}, and the router's models and
+ * the default model share the rate limits and retries of {@link GovernedChatModel}.
+ */
 public class ChatModelProvider {
     
     public enum AI_PROVIDER {
         ANTHROPIC
     }
     
+    private static final String DEFAULT_MODEL_NAME = "claude-opus-4-1-20250805";
+
     public static ChatModel createDefaultChatModel() {
-        return createDefaultChatModel(AI_PROVIDER.ANTHROPIC, "claude-opus-4-1-20250805");
+        return createDefaultChatModel(AI_PROVIDER.ANTHROPIC, DEFAULT_MODEL_NAME);
+    }
+
+    public static StreamingChatModel createDefaultStreamingChatModel() {
+        return createDefaultStreamingChatModel(AI_PROVIDER.ANTHROPIC, DEFAULT_MODEL_NAME);
+    }
+
+    /**
+     * Returns the model to use for the given agent: wrapped in a {@link CachingChatModel} when the agent
+     * is listed in AGENTS_LLM_CACHE (comma separated agent names, or "all"), the model itself otherwise.
+     * Cached responses expire after AGENTS_LLM_CACHE_TTL_MINUTES, one day by default.
+     */
+    public static ChatModel forAgent(ChatModel model, String agentName) {
+        String setting = System.getenv("AGENTS_LLM_CACHE");
+        if (setting == null || setting.isBlank()) {
+            return model;
+        }
+        Set<String> agents = Arrays.stream(setting.split(","))
+                .map(name -> name.trim().toLowerCase(Locale.ROOT))
+                .collect(Collectors.toSet());
+        // Work package developers (developer-<package>) are cached as developers
+        String name = agentName.toLowerCase(Locale.ROOT);
+        if (!agents.contains("all") && !agents.contains(name) && !agents.contains(name.replaceFirst("-.*", ""))) {
+            return model;
+        }
+        long ttlMinutes = longSetting("AGENTS_LLM_CACHE_TTL_MINUTES", 24 * 60);
+        return new CachingChatModel(model, agentName, Duration.ofMinutes(ttlMinutes));
     }
 
     public static ChatModel createDefaultChatModel(AI_PROVIDER provider, String modelName) {
+        return new GovernedChatModel(createChatModel(provider, modelName, 4096, Duration.ofMinutes(5), "default"), "default");
+    }
+
+    /**
+     * @param metricsTag what the model's calls are reported under in {@link TeamMetrics} when no agent tagged them
+     */
+    public static ChatModel createChatModel(AI_PROVIDER provider, String modelName, int maxTokens, Duration timeout, String metricsTag) {
         switch (provider) {
             case ANTHROPIC:
-                return AnthropicChatModel.builder()
+                boolean promptCaching = promptCachingEnabled();
+                AnthropicChatModel.AnthropicChatModelBuilder builder = AnthropicChatModel.builder()
                         .apiKey(System.getenv("ANTHROPIC_API_KEY"))
                         .modelName(modelName)
-                        .maxTokens(4096)  // Increased from default 1024 to allow complete tool calls
+                        .maxTokens(maxTokens)  // Agents need well above the default 1024 to complete tool calls
                         .logRequests(true)
                         .logResponses(true)
-                        .timeout(Duration.ofMinutes(5))
-                        .build();
+                        .timeout(timeout)
+                        .maxRetries(0)  // GovernedChatModel retries, honouring retry-after
+                        // System prompts and tool definitions are identical on every turn of an agent
+                        .cacheSystemMessages(promptCaching)
+                        .cacheTools(promptCaching)
+                        .listeners(List.of(AnthropicPromptCache.listener(), TeamMetrics.modelListener(metricsTag)));
+                builder.httpClientBuilder(httpClientBuilder(promptCaching));
+                if (baseUrl() != null) {
+                    builder.baseUrl(baseUrl());
+                }
+                return builder.build();
                 default:
                     throw new IllegalArgumentException("Unknown provider: " + provider);
         }
     }
+
+    /**
+     * Streaming variant of the default model, with the same settings; agents use it through a
+     * {@link StreamingChatModelAdapter}. The timeout applies between streamed chunks rather than
+     * to the whole response, so long generations are not cut off.
+     */
+    public static StreamingChatModel createDefaultStreamingChatModel(AI_PROVIDER provider, String modelName) {
+        return createStreamingChatModel(provider, modelName, 4096, Duration.ofMinutes(5), "default");
+    }
+
+    public static StreamingChatModel createStreamingChatModel(AI_PROVIDER provider, String modelName, int maxTokens, Duration timeout, String metricsTag) {
+        switch (provider) {
+            case ANTHROPIC:
+                boolean promptCaching = promptCachingEnabled();
+                AnthropicStreamingChatModel.AnthropicStreamingChatModelBuilder builder = AnthropicStreamingChatModel.builder()
+                        .apiKey(System.getenv("ANTHROPIC_API_KEY"))
+                        .modelName(modelName)
+                        .maxTokens(maxTokens)
+                        .logRequests(true)
+                        .logResponses(true)
+                        .timeout(timeout)
+                        .cacheSystemMessages(promptCaching)
+                        .cacheTools(promptCaching)
+                        .listeners(List.of(AnthropicPromptCache.listener(), TeamMetrics.modelListener(metricsTag)));
+                builder.httpClientBuilder(httpClientBuilder(promptCaching));
+                if (baseUrl() != null) {
+                    builder.baseUrl(baseUrl());
+                }
+                return builder.build();
+            default:
+                throw new IllegalArgumentException("Unknown provider: " + provider);
+        }
+    }
+
+    /**
+     * Roles the team's model calls are routed by. The supervisor service sends its planning,
+     * response scoring and context summarization requests through one model, which the router
+     * splits again; the parallel team's planner uses the architect's model.
+     */
+    public enum Role {
+        SUPERVISOR("claude-sonnet-4-20250514", 1024, Duration.ofMinutes(1)),
+        SCORER("claude-3-5-haiku-20241022", 256, Duration.ofSeconds(30)),
+        SUMMARIZER("claude-3-5-haiku-20241022", 1024, Duration.ofMinutes(1)),
+        ANALYST(DEFAULT_MODEL_NAME, 4096, Duration.ofMinutes(5)),
+        ARCHITECT(DEFAULT_MODEL_NAME, 4096, Duration.ofMinutes(5)),
+        DEVELOPER(DEFAULT_MODEL_NAME, 4096, Duration.ofMinutes(5));
+
+        private final String defaultModelName;
+        private final int defaultMaxTokens;
+        private final Duration defaultTimeout;
+
+        Role(String defaultModelName, int defaultMaxTokens, Duration defaultTimeout) {
+            this.defaultModelName = defaultModelName;
+            this.defaultMaxTokens = defaultMaxTokens;
+            this.defaultTimeout = defaultTimeout;
+        }
+
+        /**
+         * The role of an agent by name; work package developers are developers and the planner is an architect
+         */
+        public static Role forAgent(String agentName) {
+            String name = agentName.toLowerCase(Locale.ROOT);
+            if (name.startsWith("developer")) {
+                return DEVELOPER;
+            }
+            if (name.equals("planner")) {
+                return ARCHITECT;
+            }
+            for (Role role : values()) {
+                if (role.name().equalsIgnoreCase(name)) {
+                    return role;
+                }
+            }
+            throw new IllegalArgumentException("Unknown agent: " + agentName);
+        }
+
+        // AGENTS_MODEL_<ROLE>, AGENTS_MAX_TOKENS_<ROLE> and AGENTS_TIMEOUT_SECONDS_<ROLE> override the defaults
+        String modelName() {
+            String value = System.getenv("AGENTS_MODEL_" + name());
+            return value == null || value.isBlank() ? defaultModelName : value.trim();
+        }
+
+        int maxTokens() {
+            return (int) longSetting("AGENTS_MAX_TOKENS_" + name(), defaultMaxTokens);
+        }
+
+        Duration timeout() {
+            return Duration.ofSeconds(longSetting("AGENTS_TIMEOUT_SECONDS_" + name(), defaultTimeout.toSeconds()));
+        }
+    }
+
+    /**
+     * Creates one model per role, on first use, and tags each agent's calls for {@link TeamMetrics}
+     */
+    public static class ModelRouter {
+
+        // Prompts of the supervisor service's scorer and summarizer in langchain4j-agentic
+        private static final String SCORER_PROMPT = "You are a response evaluator";
+        private static final String SUMMARIZER_PROMPT = "Create a short summary of the following conversation";
+
+        private final boolean streaming;
+        private final Map<Role, ChatModel> models = new EnumMap<>(Role.class);
+
+        /**
+         * @param streaming whether the role models stream their responses, see {@link StreamingChatModelAdapter}
+         */
+        public ModelRouter(boolean streaming) {
+            this.streaming = streaming;
+        }
+
+        /**
+         * The model of an agent; the supervisor's model dispatches each request to the supervisor, scorer or summarizer
+         */
+        public ChatModel forAgent(String agentName) {
+            Role role = Role.forAgent(agentName);
+            if (role != Role.SUPERVISOR) {
+                return TeamMetrics.tagged(model(role), agentName);
+            }
+            ChatModel supervisor = TeamMetrics.tagged(model(Role.SUPERVISOR), agentName);
+            ChatModel scorer = TeamMetrics.tagged(model(Role.SCORER), "scorer");
+            ChatModel summarizer = TeamMetrics.tagged(model(Role.SUMMARIZER), "summarizer");
+            return new ChatModel() {
+                @Override
+                public ChatResponse chat(ChatRequest chatRequest) {
+                    String firstMessage = chatRequest.messages().isEmpty() ? "" : chatRequest.messages().get(0).toString();
+                    if (firstMessage.contains(SCORER_PROMPT)) {
+                        return scorer.chat(chatRequest);
+                    }
+                    if (firstMessage.contains(SUMMARIZER_PROMPT)) {
+                        return summarizer.chat(chatRequest);
+                    }
+                    return supervisor.chat(chatRequest);
+                }
+
+                @Override
+                public ChatRequestParameters defaultRequestParameters() {
+                    return supervisor.defaultRequestParameters();
+                }
+            };
+        }
+
+        private synchronized ChatModel model(Role role) {
+            return models.computeIfAbsent(role, r -> {
+                String name = r.name().toLowerCase(Locale.ROOT);
+                return new GovernedChatModel(streaming
+                        ? new StreamingChatModelAdapter(createStreamingChatModel(AI_PROVIDER.ANTHROPIC, r.modelName(), r.maxTokens(), r.timeout(), name), name)
+                        : createChatModel(AI_PROVIDER.ANTHROPIC, r.modelName(), r.maxTokens(), r.timeout(), name), name);
+            });
+        }
+    }
+
+    /**
+     * Reads a numeric setting from the environment, falling back to the default when it is unset or invalid
+     */
+    public static long longSetting(String name, long defaultValue) {
+        String value = System.getenv(name);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            System.err.println("Warning: Invalid " + name + " '" + value + "', using " + defaultValue);
+            return defaultValue;
+        }
+    }
+
+    private static HttpClientBuilder httpClientBuilder(boolean promptCaching) {
+        HttpClientBuilder httpClientBuilder = GovernedChatModel.httpClientBuilder(HttpClientBuilderLoader.loadHttpClientBuilder());
+        return promptCaching ? AnthropicPromptCache.httpClientBuilder(httpClientBuilder) : httpClientBuilder;
+    }
+
+    private static boolean promptCachingEnabled() {
+        return !"false".equalsIgnoreCase(System.getenv("AGENTS_PROMPT_CACHE"));
+    }
+
+    // Lets the model be pointed at a proxy or a local stand-in of the API
+    private static String baseUrl() {
+        String baseUrl = System.getenv("ANTHROPIC_BASE_URL");
+        return baseUrl == null || baseUrl.isBlank() ? null : baseUrl;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,367 @@
+package util;
+
+import dev.langchain4j.exception.HttpException;
+import dev.langchain4j.exception.InternalServerException;
+import dev.langchain4j.exception.RateLimitException;
+import dev.langchain4j.exception.TimeoutException;
+import dev.langchain4j.http.client.HttpClient;
+import dev.langchain4j.http.client.HttpClientBuilder;
+import dev.langchain4j.http.client.HttpRequest;
+import dev.langchain4j.http.client.SuccessfulHttpResponse;
+import dev.langchain4j.http.client.sse.ServerSentEventListener;
+import dev.langchain4j.http.client.sse.ServerSentEventParser;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.ChatRequestParameters;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.output.TokenUsage;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Rate limit governor shared by all the models of the process, so that several teams running at
+ * once stay within the provider limits instead of failing or waiting for their timeout.
+ * Every call takes a slot of a shared concurrency limit and draws from two token buckets, one of
+ * requests and one of estimated input tokens per minute. Rate limited (429), overloaded and server
+ * error (5xx) responses and timeouts are retried with jittered exponential backoff, waiting at least
+ * the retry-after time the provider asked for, during which all callers pause. The concurrency
+ * limit halves on 429 and 5xx responses and grows back by one slot per limit's worth of successful
+ * calls, so throughput settles just below the provider's limit. A timed out call already waited for
+ * the model's whole timeout, which is several minutes for some roles, so it is retried only once, and
+ * no retry starts once the call has been retrying for AGENTS_MODEL_RETRY_MINUTES.
+ * Settings: AGENTS_MODEL_CONCURRENCY (4), AGENTS_REQUESTS_PER_MINUTE (50),
+ * AGENTS_TOKENS_PER_MINUTE (80000), AGENTS_MODEL_MAX_RETRIES (6) and AGENTS_MODEL_RETRY_MINUTES (10);
+ * a budget of 0 disables it.
+ */
+public class GovernedChatModel implements ChatModel {
+
+    private static final int MAX_CONCURRENCY = (int) Math.max(1, ChatModelProvider.longSetting("AGENTS_MODEL_CONCURRENCY", 4));
+    private static final int MAX_RETRIES = (int) ChatModelProvider.longSetting("AGENTS_MODEL_MAX_RETRIES", 6);
+    private static final int MAX_TIMEOUT_RETRIES = 1;
+    private static final long MAX_RETRY_MILLIS = ChatModelProvider.longSetting("AGENTS_MODEL_RETRY_MINUTES", 10) * 60_000;
+    private static final long BASE_BACKOFF_MILLIS = 1_000;
+    private static final long MAX_BACKOFF_MILLIS = 60_000;
+    // A burst of failures from calls that were in flight together only halves the limit once
+    private static final long DECREASE_INTERVAL_NANOS = 1_000_000_000L;
+
+    private static final Object lock = new Object();
+    private static final TokenBucket requestBucket = new TokenBucket(ChatModelProvider.longSetting("AGENTS_REQUESTS_PER_MINUTE", 50));
+    private static final TokenBucket tokenBucket = new TokenBucket(ChatModelProvider.longSetting("AGENTS_TOKENS_PER_MINUTE", 80_000));
+    private static double concurrencyLimit = MAX_CONCURRENCY;
+    private static int inFlight = 0;
+    private static long pausedUntilNanos = 0;
+    private static long lastDecreaseNanos = 0;
+
+    private static long calls = 0;
+    private static long retries = 0;
+    private static long rateLimited = 0;
+    private static long serverErrors = 0;
+    private static long throttledMillis = 0;
+
+    private final ChatModel delegate;
+    private final String agentName;
+
+    public GovernedChatModel(ChatModel delegate, String agentName) {
+        this.delegate = delegate;
+        this.agentName = agentName;
+    }
+
+    /**
+     * Refills continuously up to one minute's budget; a call larger than the whole budget waits
+     * for a full bucket and leaves it in debt
+     */
+    private static class TokenBucket {
+        private final long perMinute;
+        private double available;
+        private long lastRefillNanos = System.nanoTime();
+
+        private TokenBucket(long perMinute) {
+            this.perMinute = perMinute;
+            this.available = perMinute;
+        }
+
+        private long delayMillis(long amount, long now) {
+            if (perMinute <= 0) {
+                return 0;
+            }
+            available = Math.min(perMinute, available + (now - lastRefillNanos) * perMinute / 60_000_000_000.0);
+            lastRefillNanos = now;
+            double missing = Math.min(amount, perMinute) - available;
+            return missing <= 0 ? 0 : (long) Math.ceil(missing * 60_000 / perMinute);
+        }
+
+        private void take(long amount) {
+            if (perMinute > 0) {
+                available -= amount;
+            }
+        }
+    }
+
+    /**
+     * HTTP error that keeps the retry-after time of the response, which the default client drops
+     */
+    public static class RetryAfterException extends HttpException {
+        private static final long serialVersionUID = 1L;
+        private final Duration retryAfter;
+
+        public RetryAfterException(int statusCode, String message, Duration retryAfter) {
+            super(statusCode, message);
+            this.retryAfter = retryAfter;
+        }
+
+        public Duration retryAfter() {
+            return retryAfter;
+        }
+    }
+
+    @Override
+    public ChatResponse chat(ChatRequest chatRequest) {
+        // Same four characters per token estimate as the scripted model; corrected with the actual usage afterwards
+        long estimatedTokens = chatRequest.messages().stream().mapToLong(message -> message.toString().length()).sum() / 4;
+        long start = System.nanoTime();
+        int timeouts = 0;
+        for (int attempt = 0; ; attempt++) {
+            acquire(estimatedTokens);
+            ChatResponse response;
+            try {
+                response = delegate.chat(chatRequest);
+            } catch (RuntimeException e) {
+                int status = status(e);
+                release(status);
+                timeouts += status < 0 ? 1 : 0;
+                if (status == 0 || attempt >= MAX_RETRIES || timeouts > MAX_TIMEOUT_RETRIES) {
+                    throw e;
+                }
+                Duration retryAfter = retryAfter(e);
+                long backoff = backoffMillis(attempt, retryAfter);
+                if ((System.nanoTime() - start) / 1_000_000 + backoff > MAX_RETRY_MILLIS) {
+                    throw e;
+                }
+                synchronized (lock) {
+                    retries++;
+                }
+                System.err.println("Warning: Model call of " + agentName + " failed with " + (status < 0 ? "a timeout" : "status " + status)
+                        + ", retry " + (attempt + 1) + "/" + MAX_RETRIES + " in " + backoff + "ms");
+                sleep(backoff);
+                continue;
+            }
+            release(200);
+            TokenUsage tokenUsage = response.tokenUsage();
+            if (tokenUsage != null && tokenUsage.inputTokenCount() != null) {
+                synchronized (lock) {
+                    tokenBucket.take(tokenUsage.inputTokenCount() - estimatedTokens);
+                }
+            }
+            return response;
+        }
+    }
+
+    @Override
+    public ChatRequestParameters defaultRequestParameters() {
+        return delegate.defaultRequestParameters();
+    }
+
+    private static void acquire(long estimatedTokens) {
+        long start = System.nanoTime();
+        synchronized (lock) {
+            while (true) {
+                long now = System.nanoTime();
+                long delay = Math.max((pausedUntilNanos - now) / 1_000_000,
+                        Math.max(requestBucket.delayMillis(1, now), tokenBucket.delayMillis(estimatedTokens, now)));
+                if (delay <= 0 && inFlight < Math.max(1, (int) concurrencyLimit)) {
+                    requestBucket.take(1);
+                    tokenBucket.take(estimatedTokens);
+                    inFlight++;
+                    calls++;
+                    throttledMillis += (now - start) / 1_000_000;
+                    return;
+                }
+                try {
+                    // Without a budget delay only a released slot can let the call through
+                    lock.wait(Math.max(0, delay));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Interrupted while waiting for a model call slot", e);
+                }
+            }
+        }
+    }
+
+    private static void release(int status) {
+        synchronized (lock) {
+            inFlight--;
+            long now = System.nanoTime();
+            if (status == 429 || status >= 500) {
+                if (status == 429) {
+                    rateLimited++;
+                } else {
+                    serverErrors++;
+                }
+                if (now - lastDecreaseNanos > DECREASE_INTERVAL_NANOS) {
+                    concurrencyLimit = Math.max(1, concurrencyLimit / 2);
+                    lastDecreaseNanos = now;
+                }
+            } else if (status == 200) {
+                concurrencyLimit = Math.min(MAX_CONCURRENCY, concurrencyLimit + 1 / concurrencyLimit);
+            }
+            lock.notifyAll();
+        }
+    }
+
+    // HTTP status of a retriable failure, -1 for a timeout, 0 when the call must not be retried
+    private static int status(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof HttpException httpException) {
+                int status = httpException.statusCode();
+                return status == 429 || status >= 500 ? status : 0;
+            }
+            if (cause instanceof RateLimitException) {
+                return 429;
+            }
+            if (cause instanceof InternalServerException) {
+                return 500;
+            }
+            if (cause instanceof TimeoutException || cause instanceof HttpTimeoutException) {
+                return -1;
+            }
+        }
+        return 0;
+    }
+
+    private static Duration retryAfter(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof RetryAfterException retryAfterException) {
+                return retryAfterException.retryAfter();
+            }
+        }
+        return null;
+    }
+
+    // Exponential backoff with equal jitter, never shorter than the provider's retry-after, which pauses all callers
+    private static long backoffMillis(int attempt, Duration retryAfter) {
+        long exponential = Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << Math.min(attempt, 16));
+        long backoff = exponential / 2 + ThreadLocalRandom.current().nextLong(exponential / 2 + 1);
+        if (retryAfter != null) {
+            backoff = Math.max(backoff, retryAfter.toMillis());
+            synchronized (lock) {
+                pausedUntilNanos = Math.max(pausedUntilNanos, System.nanoTime() + retryAfter.toNanos());
+            }
+        }
+        return backoff;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while backing off a model call", e);
+        }
+    }
+
+    public static String stats() {
+        synchronized (lock) {
+            return "calls=" + calls + ", retries=" + retries + ", rateLimited=" + rateLimited + ", serverErrors=" + serverErrors
+                    + ", throttled=" + throttledMillis + "ms, concurrencyLimit=" + String.format("%.1f", concurrencyLimit)
+                    + "/" + MAX_CONCURRENCY;
+        }
+    }
+
+    /**
+     * Builder of an HTTP client whose blocking requests fail with a {@link RetryAfterException}
+     * carrying the response's retry-after time; streaming requests go through the given builder's client
+     */
+    public static HttpClientBuilder httpClientBuilder(HttpClientBuilder delegate) {
+        return new HttpClientBuilder() {
+            @Override
+            public Duration connectTimeout() {
+                return delegate.connectTimeout();
+            }
+
+            @Override
+            public HttpClientBuilder connectTimeout(Duration timeout) {
+                delegate.connectTimeout(timeout);
+                return this;
+            }
+
+            @Override
+            public Duration readTimeout() {
+                return delegate.readTimeout();
+            }
+
+            @Override
+            public HttpClientBuilder readTimeout(Duration timeout) {
+                delegate.readTimeout(timeout);
+                return this;
+            }
+
+            @Override
+            public HttpClient build() {
+                HttpClient streamingClient = delegate.build();
+                java.net.http.HttpClient.Builder jdkBuilder = java.net.http.HttpClient.newBuilder();
+                if (delegate.connectTimeout() != null) {
+                    jdkBuilder.connectTimeout(delegate.connectTimeout());
+                }
+                java.net.http.HttpClient client = jdkBuilder.build();
+                Duration readTimeout = delegate.readTimeout();
+                return new HttpClient() {
+                    @Override
+                    public SuccessfulHttpResponse execute(HttpRequest request) {
+                        return send(client, request, readTimeout);
+                    }
+
+                    @Override
+                    public void execute(HttpRequest request, ServerSentEventParser parser, ServerSentEventListener listener) {
+                        streamingClient.execute(request, parser, listener);
+                    }
+                };
+            }
+        };
+    }
+
+    private static SuccessfulHttpResponse send(java.net.http.HttpClient client, HttpRequest request, Duration readTimeout) {
+        java.net.http.HttpRequest.Builder builder = java.net.http.HttpRequest.newBuilder().uri(URI.create(request.url()));
+        request.headers().forEach((name, values) -> values.forEach(value -> builder.header(name, value)));
+        builder.method(request.method().name(), request.body() == null
+                ? java.net.http.HttpRequest.BodyPublishers.noBody()
+                : java.net.http.HttpRequest.BodyPublishers.ofString(request.body()));
+        if (readTimeout != null) {
+            builder.timeout(readTimeout);
+        }
+        try {
+            HttpResponse<String> response = client.send(builder.build(), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() < 200 || response.statusCode() >= 300) {
+                throw new RetryAfterException(response.statusCode(), response.body(), retryAfter(response.headers()));
+            }
+            return SuccessfulHttpResponse.builder()
+                    .statusCode(response.statusCode())
+                    .headers(response.headers().map())
+                    .body(response.body())
+                    .build();
+        } catch (HttpTimeoutException e) {
+            throw new TimeoutException(e);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    // Seconds; the HTTP date form is not used by the model providers
+    private static Duration retryAfter(HttpHeaders headers) {
+        return headers.firstValue("retry-after").map(value -> {
+            try {
+                return Duration.ofMillis((long) (Double.parseDouble(value.trim()) * 1000));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }).orElse(null);
+    }
+}
@@ -0,0 +1,178 @@
+package util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.ChatRequestParameters;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.output.FinishReason;
+import dev.langchain4j.model.output.TokenUsage;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Supervisor model decorator making the SUMMARIZATION context strategies incremental.
+ * Before each planning turn the supervisor summarizes the whole conversation of the sub-agent
+ * invocations so far, which only ever grows at the end, so the summarization requests grow with
+ * the run. This decorator remembers the summary of every conversation it has seen: an unchanged
+ * conversation reuses its summary without a model call, and a longer one is summarized as the
+ * summary of its known beginning followed by the new invocations only. Requests that are not
+ * summarizations go to the model unchanged.
+ */
+public class IncrementalSummarizer implements ChatModel {
+
+    // Prompt of langchain4j-agentic's context summarizer, which embeds the conversation as 'conversation'.
+    private static final String SUMMARY_PROMPT = "Create a short summary of the following conversation";
+    private static final String CONVERSATION_START = "The user conversation is: '";
+    private static final String CONVERSATION_END = "'.";
+    private static final int MAX_SUMMARIES = 32;
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * A summarized conversation with the model's answer and the summary text read from it
+     */
+    private static class Summary {
+        private final String conversation;
+        private final AiMessage answer;
+        private final String text;
+
+        private Summary(String conversation, AiMessage answer, String text) {
+            this.conversation = conversation;
+            this.answer = answer;
+            this.text = text;
+        }
+    }
+
+    // Most recent first
+    private static final LinkedList<Summary> summaries = new LinkedList<>();
+    private static long requests = 0;
+    private static long reused = 0;
+    private static long incremental = 0;
+    private static long full = 0;
+    private static long conversationChars = 0;
+    private static long sentChars = 0;
+
+    private final ChatModel delegate;
+
+    public IncrementalSummarizer(ChatModel delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public ChatResponse chat(ChatRequest chatRequest) {
+        int promptIndex = summaryPromptIndex(chatRequest.messages());
+        if (promptIndex < 0) {
+            return delegate.chat(chatRequest);
+        }
+        String prompt = ((UserMessage) chatRequest.messages().get(promptIndex)).singleText();
+        int start = prompt.indexOf(CONVERSATION_START);
+        int end = prompt.lastIndexOf(CONVERSATION_END);
+        if (start < 0 || end < start + CONVERSATION_START.length()) {
+            return delegate.chat(chatRequest);
+        }
+        start += CONVERSATION_START.length();
+        String conversation = prompt.substring(start, end);
+
+        Summary known = longestKnownBeginning(conversation);
+        if (known != null && known.conversation.length() == conversation.length()) {
+            record(conversation.length(), 0, true, false);
+            return ChatResponse.builder()
+                    .aiMessage(known.answer)
+                    .tokenUsage(new TokenUsage(0, 0))
+                    .finishReason(FinishReason.STOP)
+                    .build();
+        }
+
+        ChatRequest request = chatRequest;
+        String sent = conversation;
+        if (known != null) {
+            sent = "Summary of the beginning of the conversation: " + known.text
+                    + "\nRest of the conversation:\n" + conversation.substring(known.conversation.length());
+            List<ChatMessage> messages = new ArrayList<>(chatRequest.messages());
+            messages.set(promptIndex, UserMessage.from(prompt.substring(0, start) + sent + prompt.substring(end)));
+            request = chatRequest.toBuilder().messages(messages).build();
+        }
+        ChatResponse response = delegate.chat(request);
+        record(conversation.length(), sent.length(), false, known != null);
+        if (response.aiMessage() != null && response.aiMessage().text() != null) {
+            remember(new Summary(conversation, response.aiMessage(), summaryText(response.aiMessage().text())));
+        }
+        return response;
+    }
+
+    @Override
+    public ChatRequestParameters defaultRequestParameters() {
+        return delegate.defaultRequestParameters();
+    }
+
+    private static int summaryPromptIndex(List<ChatMessage> messages) {
+        for (int i = 0; i < messages.size(); i++) {
+            if (messages.get(i) instanceof UserMessage userMessage && userMessage.hasSingleText()
+                    && userMessage.singleText().startsWith(SUMMARY_PROMPT)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static synchronized Summary longestKnownBeginning(String conversation) {
+        Summary longest = null;
+        for (Summary summary : summaries) {
+            if (conversation.startsWith(summary.conversation)
+                    && (longest == null || summary.conversation.length() > longest.conversation.length())) {
+                longest = summary;
+            }
+        }
+        return longest;
+    }
+
+    private static synchronized void remember(Summary summary) {
+        summaries.removeIf(known -> known.conversation.equals(summary.conversation));
+        summaries.addFirst(summary);
+        while (summaries.size() > MAX_SUMMARIES) {
+            summaries.removeLast();
+        }
+    }
+
+    // The summarizer answers {"summary": "..."}, possibly in a Markdown code block
+    private static String summaryText(String answer) {
+        String json = answer.strip();
+        if (json.startsWith("```")) {
+            json = json.substring(json.indexOf('\n') + 1);
+            json = json.endsWith("```") ? json.substring(0, json.length() - 3) : json;
+        }
+        try {
+            JsonNode summary = objectMapper.readTree(json).path("summary");
+            return summary.isTextual() ? summary.asText() : answer;
+        } catch (IOException e) {
+            return answer;
+        }
+    }
+
+    private static synchronized void record(int conversationLength, int sentLength, boolean wasReused, boolean wasIncremental) {
+        requests++;
+        if (wasReused) {
+            reused++;
+        } else if (wasIncremental) {
+            incremental++;
+        } else {
+            full++;
+        }
+        conversationChars += conversationLength;
+        sentChars += sentLength;
+    }
+
+    public static synchronized String stats() {
+        double sentRate = conversationChars == 0 ? 0 : (double) sentChars / conversationChars * 100;
+        return "summaries=" + requests + ", reused=" + reused + ", incremental=" + incremental + ", full=" + full
+                + ", conversationChars=" + conversationChars + ", sentChars=" + sentChars
+                + ", sentRate=" + String.format("%.1f%%", sentRate);
+    }
+}
@@ -0,0 +1,268 @@
+package util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.ChatRequestParameters;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.output.FinishReason;
+import dev.langchain4j.model.output.TokenUsage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Offline ChatModel stand-in that replays a scripted or recorded conversation.
+ * A script is a list of rules; a request is answered by the first rule whose match text is
+ * contained in the request's system message, or in its first user message when there is no
+ * system message, which identifies the calling agent. Each rule answers with its steps in
+ * order, a step being either a text or one or more tool calls. Once a rule runs out of steps
+ * it repeats its last text step, so tool loops always terminate.
+ * Scripts are JSON files of the form
+ * {"rules": [{"match": "...", "steps": [{"text": "..."}, {"toolCalls": [{"name": "...", "arguments": {...}}]}]}]},
+ * and {@link #recorder(ChatModel, Path)} writes one while a real model answers.
+ */
+public class ScriptedChatModel implements ChatModel {
+
+    private static final int MAX_RECORDED_MATCH_CHARS = 80;
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final Map<Path, ScriptedChatModel> recordings = new HashMap<>();
+
+    /**
+     * A scripted answer: a text, or tool calls with their JSON arguments
+     */
+    public static class Step {
+        private final String text;
+        private final List<ToolExecutionRequest> toolCalls;
+
+        private Step(String text, List<ToolExecutionRequest> toolCalls) {
+            this.text = text;
+            this.toolCalls = toolCalls;
+        }
+
+        public static Step text(String text) {
+            return new Step(text, List.of());
+        }
+
+        /**
+         * A single tool call; the arguments are a JSON object keyed by parameter name (arg0, arg1, ...)
+         */
+        public static Step toolCall(String toolName, String argumentsJson) {
+            return new Step(null, List.of(ToolExecutionRequest.builder().name(toolName).arguments(argumentsJson).build()));
+        }
+
+        public static Step toolCalls(List<ToolExecutionRequest> toolCalls) {
+            return new Step(null, List.copyOf(toolCalls));
+        }
+
+        public boolean isText() { return toolCalls.isEmpty(); }
+        public String getText() { return text; }
+        public List<ToolExecutionRequest> getToolCalls() { return toolCalls; }
+    }
+
+    private static class Rule {
+        private final String match;
+        private final List<Step> steps;
+        private int next = 0;
+
+        private Rule(String match, List<Step> steps) {
+            this.match = match;
+            this.steps = steps;
+        }
+    }
+
+    private final List<Rule> rules = new ArrayList<>();
+    private final AtomicInteger callIds = new AtomicInteger();
+
+    /**
+     * Adds a rule answering the requests that contain the match text with the given steps
+     */
+    public synchronized ScriptedChatModel on(String match, Step... steps) {
+        rules.add(new Rule(match, new ArrayList<>(List.of(steps))));
+        return this;
+    }
+
+    @Override
+    public ChatResponse doChat(ChatRequest chatRequest) {
+        String key = requestKey(chatRequest.messages());
+        Step step = nextStep(key);
+        AiMessage aiMessage;
+        if (step.isText()) {
+            aiMessage = AiMessage.from(step.getText());
+        } else {
+            List<ToolExecutionRequest> toolCalls = new ArrayList<>();
+            for (ToolExecutionRequest toolCall : step.getToolCalls()) {
+                toolCalls.add(ToolExecutionRequest.builder()
+                        .id("call_" + callIds.incrementAndGet())
+                        .name(toolCall.name())
+                        .arguments(toolCall.arguments())
+                        .build());
+            }
+            aiMessage = AiMessage.from(toolCalls);
+        }
+        // Rough estimate of four characters per token, so token based reports still show proportions
+        int inputChars = chatRequest.messages().stream().mapToInt(message -> message.toString().length()).sum();
+        return ChatResponse.builder()
+                .aiMessage(aiMessage)
+                .modelName("scripted")
+                .tokenUsage(new TokenUsage(inputChars / 4, aiMessage.toString().length() / 4))
+                .finishReason(step.isText() ? FinishReason.STOP : FinishReason.TOOL_EXECUTION)
+                .build();
+    }
+
+    private synchronized Step nextStep(String key) {
+        for (Rule rule : rules) {
+            if (!key.contains(rule.match)) {
+                continue;
+            }
+            if (rule.next < rule.steps.size()) {
+                return rule.steps.get(rule.next++);
+            }
+            for (int i = rule.steps.size() - 1; i >= 0; i--) {
+                if (rule.steps.get(i).isText()) {
+                    return rule.steps.get(i);
+                }
+            }
+            return Step.text("Done.");
+        }
+        throw new IllegalStateException("No scripted response for request: "
+                + key.substring(0, Math.min(200, key.length())));
+    }
+
+    /**
+     * Loads a script written by {@link #save(Path)} or by a recorder
+     */
+    public static ScriptedChatModel load(Path file) throws IOException {
+        ScriptedChatModel model = new ScriptedChatModel();
+        JsonNode root = objectMapper.readTree(Files.readString(file));
+        for (JsonNode rule : root.path("rules")) {
+            List<Step> steps = new ArrayList<>();
+            for (JsonNode step : rule.path("steps")) {
+                if (step.has("toolCalls")) {
+                    List<ToolExecutionRequest> toolCalls = new ArrayList<>();
+                    for (JsonNode toolCall : step.get("toolCalls")) {
+                        JsonNode arguments = toolCall.path("arguments");
+                        toolCalls.add(ToolExecutionRequest.builder()
+                                .name(toolCall.path("name").asText())
+                                .arguments(arguments.isTextual() ? arguments.asText() : arguments.toString())
+                                .build());
+                    }
+                    steps.add(Step.toolCalls(toolCalls));
+                } else {
+                    steps.add(Step.text(step.path("text").asText()));
+                }
+            }
+            model.on(rule.path("match").asText(), steps.toArray(new Step[0]));
+        }
+        return model;
+    }
+
+    public synchronized void save(Path file) throws IOException {
+        ObjectNode root = objectMapper.createObjectNode();
+        ArrayNode rulesJson = root.putArray("rules");
+        for (Rule rule : rules) {
+            ObjectNode ruleJson = rulesJson.addObject();
+            ruleJson.put("match", rule.match);
+            ArrayNode stepsJson = ruleJson.putArray("steps");
+            for (Step step : rule.steps) {
+                ObjectNode stepJson = stepsJson.addObject();
+                if (step.isText()) {
+                    stepJson.put("text", step.getText());
+                    continue;
+                }
+                ArrayNode toolCallsJson = stepJson.putArray("toolCalls");
+                for (ToolExecutionRequest toolCall : step.getToolCalls()) {
+                    ObjectNode toolCallJson = toolCallsJson.addObject();
+                    toolCallJson.put("name", toolCall.name());
+                    try {
+                        toolCallJson.set("arguments", objectMapper.readTree(toolCall.arguments()));
+                    } catch (IOException e) {
+                        toolCallJson.put("arguments", toolCall.arguments());
+                    }
+                }
+            }
+        }
+        if (file.toAbsolutePath().getParent() != null) {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+        }
+        Files.writeString(file, objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(root));
+    }
+
+    /**
+     * Wraps a model so that every answer is appended to a script saved to the given file after each call.
+     * Replaying the script with {@link #load(Path)} reproduces the conversation offline.
+     */
+    public static ChatModel recorder(ChatModel delegate, Path file) {
+        ScriptedChatModel script;
+        synchronized (recordings) {
+            // Recorders of the different agents share the script of their file
+            script = recordings.computeIfAbsent(file.toAbsolutePath().normalize(), path -> new ScriptedChatModel());
+        }
+        return new ChatModel() {
+            @Override
+            public ChatResponse doChat(ChatRequest chatRequest) {
+                ChatResponse response = delegate.chat(chatRequest);
+                String key = requestKey(chatRequest.messages());
+                String match = key.lines().filter(line -> !line.isBlank()).findFirst().orElse("").trim();
+                match = match.substring(0, Math.min(MAX_RECORDED_MATCH_CHARS, match.length()));
+                AiMessage aiMessage = response.aiMessage();
+                Step step = aiMessage.hasToolExecutionRequests()
+                        ? Step.toolCalls(aiMessage.toolExecutionRequests())
+                        : Step.text(aiMessage.text());
+                synchronized (script) {
+                    script.append(match, step);
+                    try {
+                        script.save(file);
+                    } catch (IOException e) {
+                        System.err.println("Warning: Failed to save recorded script " + file + ": " + e.getMessage());
+                    }
+                }
+                return response;
+            }
+
+            @Override
+            public ChatRequestParameters defaultRequestParameters() {
+                return delegate.defaultRequestParameters();
+            }
+        };
+    }
+
+    private synchronized void append(String match, Step step) {
+        for (Rule rule : rules) {
+            if (rule.match.equals(match)) {
+                rule.steps.add(step);
+                return;
+            }
+        }
+        rules.add(new Rule(match, new ArrayList<>(List.of(step))));
+    }
+
+    // The system message identifies the agent; the supervisor's scorer and summarizer only send a user message
+    private static String requestKey(List<ChatMessage> messages) {
+        for (ChatMessage message : messages) {
+            if (message instanceof SystemMessage systemMessage) {
+                return systemMessage.text();
+            }
+        }
+        for (ChatMessage message : messages) {
+            if (message instanceof UserMessage userMessage && userMessage.hasSingleText()) {
+                return userMessage.singleText();
+            }
+        }
+        return "";
+    }
+}
@@ -0,0 +1,176 @@
+package util;
+
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.ChatRequestParameters;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.CompleteToolCall;
+import dev.langchain4j.model.chat.response.PartialToolCall;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import dev.langchain4j.model.output.TokenUsage;
+import util.log.CustomLogging;
+import util.log.LogParser;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Blocking ChatModel of one agent on top of a StreamingChatModel.
+ * The agent services only accept a ChatModel, so the adapter waits for the complete streamed
+ * response, but the pretty log shows the text live as it arrives and every tool call as soon as
+ * its arguments have finished streaming. For each agent it measures the time to first token and
+ * the generation speed in output tokens per second.
+ */
+public class StreamingChatModelAdapter implements ChatModel {
+
+    /**
+     * Streaming latency of one agent
+     */
+    private static class AgentStats {
+        private long calls = 0;
+        private long firstTokenNanos = 0;
+        private long outputTokens = 0;
+        private long generationNanos = 0;
+    }
+
+    private static final Map<String, AgentStats> stats = new TreeMap<>();
+    // Agent whose tokens were printed last, so that interleaved output of parallel agents stays readable
+    private static String lastPrinter;
+
+    private final StreamingChatModel delegate;
+    private final String agentName;
+
+    public StreamingChatModelAdapter(StreamingChatModel delegate, String agentName) {
+        this.delegate = delegate;
+        this.agentName = agentName;
+    }
+
+    @Override
+    public ChatResponse chat(ChatRequest chatRequest) {
+        long start = System.nanoTime();
+        long[] firstToken = {0};
+        CompletableFuture<ChatResponse> result = new CompletableFuture<>();
+        delegate.chat(chatRequest, new StreamingChatResponseHandler() {
+            @Override
+            public void onPartialResponse(String partialResponse) {
+                markFirstToken(firstToken);
+                if (CustomLogging.isPrettyLogging()) {
+                    print(partialResponse);
+                }
+            }
+
+            @Override
+            public void onPartialToolCall(PartialToolCall partialToolCall) {
+                markFirstToken(firstToken);
+            }
+
+            @Override
+            public void onCompleteToolCall(CompleteToolCall completeToolCall) {
+                markFirstToken(firstToken);
+                if (CustomLogging.isPrettyLogging()) {
+                    endLine();
+                    LogParser.logToolCallRequest(completeToolCall.toolExecutionRequest().id(),
+                            completeToolCall.toolExecutionRequest().name(), completeToolCall.toolExecutionRequest().arguments());
+                }
+            }
+
+            @Override
+            public void onCompleteResponse(ChatResponse completeResponse) {
+                result.complete(completeResponse);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                result.completeExceptionally(error);
+            }
+        });
+
+        ChatResponse response;
+        try {
+            response = result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while streaming the response of " + agentName, e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException runtimeException
+                    ? runtimeException : new RuntimeException(e.getCause());
+        }
+        long end = System.nanoTime();
+        if (CustomLogging.isPrettyLogging()) {
+            endLine();
+        }
+        record(start, firstToken[0] == 0 ? end : firstToken[0], end, response.tokenUsage());
+        return response;
+    }
+
+    @Override
+    public ChatRequestParameters defaultRequestParameters() {
+        return delegate.defaultRequestParameters();
+    }
+
+    private static void markFirstToken(long[] firstToken) {
+        if (firstToken[0] == 0) {
+            firstToken[0] = System.nanoTime();
+        }
+    }
+
+    private void record(long start, long firstToken, long end, TokenUsage tokenUsage) {
+        synchronized (StreamingChatModelAdapter.class) {
+            AgentStats agent = stats.computeIfAbsent(agentName, name -> new AgentStats());
+            agent.calls++;
+            agent.firstTokenNanos += firstToken - start;
+            if (tokenUsage != null && tokenUsage.outputTokenCount() != null) {
+                agent.outputTokens += tokenUsage.outputTokenCount();
+                agent.generationNanos += end - firstToken;
+            }
+        }
+    }
+
+    private void print(String token) {
+        synchronized (StreamingChatModelAdapter.class) {
+            if (!agentName.equals(lastPrinter)) {
+                if (lastPrinter != null) {
+                    System.out.println();
+                }
+                System.out.print("MODEL (" + agentName + "): ");
+                lastPrinter = agentName;
+            }
+            System.out.print(token);
+            System.out.flush();
+        }
+    }
+
+    private void endLine() {
+        synchronized (StreamingChatModelAdapter.class) {
+            if (agentName.equals(lastPrinter)) {
+                System.out.println();
+                System.out.println();
+                lastPrinter = null;
+            }
+        }
+    }
+
+    /**
+     * Average time to first token and output tokens per second of each agent
+     */
+    public static synchronized String stats() {
+        if (stats.isEmpty()) {
+            return "no streamed responses";
+        }
+        StringBuilder result = new StringBuilder();
+        stats.forEach((agent, agentStats) -> {
+            double tokensPerSecond = agentStats.generationNanos == 0
+                    ? 0 : agentStats.outputTokens / (agentStats.generationNanos / 1_000_000_000.0);
+            if (result.length() > 0) {
+                result.append(", ");
+            }
+            result.append(agent).append("(calls=").append(agentStats.calls)
+                  .append(", ttft=").append(agentStats.firstTokenNanos / agentStats.calls / 1_000_000).append("ms")
+                  .append(", tokensPerSecond=").append(String.format("%.1f", tokensPerSecond)).append(")");
+        });
+        return result.toString();
+    }
+}
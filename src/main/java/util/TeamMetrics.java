@@ -0,0 +1,315 @@
+package util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import dev.langchain4j.agent.tool.Tool;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.agent.tool.ToolSpecifications;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.listener.ChatModelErrorContext;
+import dev.langchain4j.model.chat.listener.ChatModelListener;
+import dev.langchain4j.model.chat.listener.ChatModelRequestContext;
+import dev.langchain4j.model.chat.listener.ChatModelResponseContext;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.ChatRequestParameters;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.output.TokenUsage;
+import dev.langchain4j.service.tool.DefaultToolExecutor;
+import dev.langchain4j.service.tool.ToolExecutor;
+import dev.langchain4j.service.tool.ToolProvider;
+import dev.langchain4j.service.tool.ToolProviderResult;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Token, latency and payload accounting of a team run.
+ * Every model built by {@link ChatModelProvider} reports to a listener, which records each call
+ * under the agent whose {@link #tagged(ChatModel, String)} model made it, and agents get their tools through {@link #tools(String, Object...)}, which wraps every
+ * {@code @Tool} method to time it and measure its argument and result sizes. Latencies are kept
+ * in fixed histograms, so the memory used does not grow with the length of the run.
+ * {@link #snapshot()} renders the metrics as text and {@link #writeReport()} as a JSON file.
+ */
+public class TeamMetrics {
+
+    public static final String REPORT_DIR = "./generated-project/.agent-memory/metrics";
+    private static final long[] BUCKET_MILLIS = {10, 50, 100, 250, 500, 1000, 2500, 5000, 10_000, 30_000, 60_000, 120_000};
+    private static final String START_NANOS = "teamMetrics.startNanos";
+    private static final String AGENT = "teamMetrics.agent";
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private static final String runId = "run-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+    private static final long runStartMillis = System.currentTimeMillis();
+    private static final Map<String, Series> models = new TreeMap<>();
+    private static final Map<String, Series> tools = new TreeMap<>();
+    // Agent of the model call in progress on this thread; the listeners are notified of the request on the calling thread
+    private static final ThreadLocal<String> currentAgent = new ThreadLocal<>();
+
+    private TeamMetrics() {
+    }
+
+    /**
+     * Counters and latency histogram of one model or tool of one agent
+     */
+    private static class Series {
+        private final String agent;
+        private final String name;
+        private long calls = 0;
+        private long errors = 0;
+        private long totalMillis = 0;
+        private long maxMillis = 0;
+        private final long[] histogram = new long[BUCKET_MILLIS.length + 1];
+        private long inputTokens = 0;
+        private long outputTokens = 0;
+        private long requestBytes = 0;
+        private long responseBytes = 0;
+
+        private Series(String agent, String name) {
+            this.agent = agent;
+            this.name = name;
+        }
+
+        private void recordLatency(long millis) {
+            calls++;
+            totalMillis += millis;
+            maxMillis = Math.max(maxMillis, millis);
+            int bucket = 0;
+            while (bucket < BUCKET_MILLIS.length && millis > BUCKET_MILLIS[bucket]) {
+                bucket++;
+            }
+            histogram[bucket]++;
+        }
+
+        // Upper bound of the bucket holding the percentile, or the maximum for the overflow bucket
+        private long percentile(double percentile) {
+            long rank = (long) Math.ceil(calls * percentile);
+            long seen = 0;
+            for (int bucket = 0; bucket < histogram.length; bucket++) {
+                seen += histogram[bucket];
+                if (seen >= rank && seen > 0) {
+                    return bucket < BUCKET_MILLIS.length ? Math.min(BUCKET_MILLIS[bucket], maxMillis) : maxMillis;
+                }
+            }
+            return maxMillis;
+        }
+    }
+
+    public static String runId() {
+        return runId;
+    }
+
+    /**
+     * Model whose calls are reported under the given agent, so that agents sharing one model
+     * (the work package developers, for instance) are measured apart
+     */
+    public static ChatModel tagged(ChatModel model, String agent) {
+        return new ChatModel() {
+            @Override
+            public ChatResponse chat(ChatRequest chatRequest) {
+                String previous = currentAgent.get();
+                currentAgent.set(agent);
+                try {
+                    return model.chat(chatRequest);
+                } finally {
+                    if (previous == null) {
+                        currentAgent.remove();
+                    } else {
+                        currentAgent.set(previous);
+                    }
+                }
+            }
+
+            @Override
+            public ChatRequestParameters defaultRequestParameters() {
+                return model.defaultRequestParameters();
+            }
+        };
+    }
+
+    /**
+     * Listener recording latency and tokens of the model calls under the agent that made them,
+     * or under the given tag for calls made outside of a {@link #tagged(ChatModel, String)} model
+     */
+    public static ChatModelListener modelListener(String defaultTag) {
+        return new ChatModelListener() {
+            @Override
+            public void onRequest(ChatModelRequestContext requestContext) {
+                String agent = currentAgent.get();
+                requestContext.attributes().put(AGENT, agent == null ? defaultTag : agent);
+                requestContext.attributes().put(START_NANOS, System.nanoTime());
+            }
+
+            @Override
+            public void onResponse(ChatModelResponseContext responseContext) {
+                long millis = elapsedMillis(responseContext.attributes());
+                String agent = agent(responseContext.attributes(), defaultTag);
+                TokenUsage tokenUsage = responseContext.chatResponse().tokenUsage();
+                synchronized (TeamMetrics.class) {
+                    Series series = models.computeIfAbsent(agent, key -> new Series(agent, "model"));
+                    series.recordLatency(millis);
+                    if (tokenUsage != null) {
+                        series.inputTokens += tokenUsage.inputTokenCount() == null ? 0 : tokenUsage.inputTokenCount();
+                        series.outputTokens += tokenUsage.outputTokenCount() == null ? 0 : tokenUsage.outputTokenCount();
+                    }
+                }
+            }
+
+            @Override
+            public void onError(ChatModelErrorContext errorContext) {
+                long millis = elapsedMillis(errorContext.attributes());
+                String agent = agent(errorContext.attributes(), defaultTag);
+                synchronized (TeamMetrics.class) {
+                    Series series = models.computeIfAbsent(agent, key -> new Series(agent, "model"));
+                    series.recordLatency(millis);
+                    series.errors++;
+                }
+            }
+        };
+    }
+
+    private static String agent(Map<Object, Object> attributes, String defaultTag) {
+        return attributes.get(AGENT) instanceof String agent ? agent : defaultTag;
+    }
+
+    private static long elapsedMillis(Map<Object, Object> attributes) {
+        Object start = attributes.get(START_NANOS);
+        return start instanceof Long startNanos ? (System.nanoTime() - startNanos) / 1_000_000 : 0;
+    }
+
+    /**
+     * Tool provider exposing the {@code @Tool} methods of the given objects, exactly as the agent
+     * builder's tools(...) does, with every execution measured for the given agent
+     */
+    public static ToolProvider tools(String agent, Object... toolObjects) {
+        ToolProviderResult.Builder result = ToolProviderResult.builder();
+        for (Object toolObject : toolObjects) {
+            for (Method method : toolObject.getClass().getDeclaredMethods()) {
+                if (!method.isAnnotationPresent(Tool.class)) {
+                    continue;
+                }
+                ToolSpecification specification = ToolSpecifications.toolSpecificationFrom(method);
+                ToolExecutor executor = DefaultToolExecutor.builder()
+                        .object(toolObject)
+                        .originalMethod(method)
+                        .methodToInvoke(method)
+                        .wrapToolArgumentsExceptions(true)
+                        .propagateToolExecutionExceptions(true)
+                        .build();
+                result.add(specification, measured(agent, specification.name(), executor));
+            }
+        }
+        ToolProviderResult tools = result.build();
+        return request -> tools;
+    }
+
+    private static ToolExecutor measured(String agent, String toolName, ToolExecutor executor) {
+        return (ToolExecutionRequest request, Object memoryId) -> {
+            long start = System.nanoTime();
+            String result = null;
+            boolean failed = true;
+            try {
+                result = executor.execute(request, memoryId);
+                // The tools report their failures as results starting with "Error"
+                failed = result != null && result.startsWith("Error");
+                return result;
+            } finally {
+                long millis = (System.nanoTime() - start) / 1_000_000;
+                synchronized (TeamMetrics.class) {
+                    Series series = tools.computeIfAbsent(agent + "/" + toolName, key -> new Series(agent, toolName));
+                    series.recordLatency(millis);
+                    series.errors += failed ? 1 : 0;
+                    series.requestBytes += bytes(request.arguments());
+                    series.responseBytes += bytes(result);
+                }
+            }
+        };
+    }
+
+    private static long bytes(String text) {
+        return text == null ? 0 : text.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    /**
+     * Text rendering of the metrics collected so far
+     */
+    public static synchronized String snapshot() {
+        StringBuilder snapshot = new StringBuilder();
+        snapshot.append("=== Metrics of ").append(runId).append(" ===\n");
+        snapshot.append("Models (agent: calls, errors, input/output tokens, latency avg/p50/p90/max):\n");
+        models.values().forEach(series -> snapshot.append("  ").append(series.agent).append(": ")
+                .append(series.calls).append(" calls, ").append(series.errors).append(" errors, ")
+                .append(series.inputTokens).append("/").append(series.outputTokens).append(" tokens, ")
+                .append(latency(series)).append("\n"));
+        snapshot.append("Tools (agent/tool: calls, errors, argument/result bytes, duration avg/p50/p90/max):\n");
+        tools.values().forEach(series -> snapshot.append("  ").append(series.agent).append("/").append(series.name).append(": ")
+                .append(series.calls).append(" calls, ").append(series.errors).append(" errors, ")
+                .append(series.requestBytes).append("/").append(series.responseBytes).append(" bytes, ")
+                .append(latency(series)).append("\n"));
+        return snapshot.toString();
+    }
+
+    private static String latency(Series series) {
+        return (series.calls == 0 ? 0 : series.totalMillis / series.calls) + "/" + series.percentile(0.5) + "/"
+                + series.percentile(0.9) + "/" + series.maxMillis + "ms";
+    }
+
+    /**
+     * Writes the metrics as JSON to the report directory and returns the file
+     */
+    public static Path writeReport() throws IOException {
+        ObjectNode report;
+        synchronized (TeamMetrics.class) {
+            report = objectMapper.createObjectNode();
+            report.put("runId", runId);
+            report.put("startedAt", runStartMillis);
+            report.put("durationMillis", System.currentTimeMillis() - runStartMillis);
+            ArrayNode modelsJson = report.putArray("models");
+            for (Series series : models.values()) {
+                ObjectNode json = toJson(modelsJson.addObject(), series);
+                json.put("inputTokens", series.inputTokens);
+                json.put("outputTokens", series.outputTokens);
+            }
+            ArrayNode toolsJson = report.putArray("tools");
+            for (Series series : tools.values()) {
+                ObjectNode json = toJson(toolsJson.addObject(), series);
+                json.put("tool", series.name);
+                json.put("argumentBytes", series.requestBytes);
+                json.put("resultBytes", series.responseBytes);
+            }
+        }
+        Path dir = Paths.get(REPORT_DIR);
+        Files.createDirectories(dir);
+        Path file = dir.resolve(runId + ".json");
+        Files.writeString(file, objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(report));
+        return file;
+    }
+
+    private static ObjectNode toJson(ObjectNode json, Series series) {
+        json.put("agent", series.agent);
+        json.put("calls", series.calls);
+        json.put("errors", series.errors);
+        ObjectNode latency = json.putObject("latencyMillis");
+        latency.put("total", series.totalMillis);
+        latency.put("avg", series.calls == 0 ? 0 : series.totalMillis / series.calls);
+        latency.put("p50", series.percentile(0.5));
+        latency.put("p90", series.percentile(0.9));
+        latency.put("p99", series.percentile(0.99));
+        latency.put("max", series.maxMillis);
+        ObjectNode histogram = latency.putObject("histogram");
+        for (int bucket = 0; bucket < series.histogram.length; bucket++) {
+            String label = bucket < BUCKET_MILLIS.length ? "<=" + BUCKET_MILLIS[bucket] : ">" + BUCKET_MILLIS[BUCKET_MILLIS.length - 1];
+            histogram.put(label, series.histogram[bucket]);
+        }
+        return json;
+    }
+}
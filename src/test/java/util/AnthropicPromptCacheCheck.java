@@ -0,0 +1,137 @@
+package util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.http.client.HttpMethod;
+import dev.langchain4j.http.client.HttpRequest;
+import dev.langchain4j.model.anthropic.AnthropicChatModel;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checks {@link AnthropicPromptCache} against a local stand-in of the Anthropic messages API:
+ * the cache breakpoint placed by {@link AnthropicPromptCache#markHistory(HttpRequest)} on the
+ * requests the model actually sends, and the cache token counters of {@link AnthropicPromptCache#stats()}.
+ * It needs neither network access nor an API key, and exits with an error on the first failed check.
+ * Usage: mvn test-compile exec:java -Dexec.mainClass=util.AnthropicPromptCacheCheck -Dexec.classpathScope=test
+ */
+public class AnthropicPromptCacheCheck {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    // Usage reported by the stand-in for each response: input, cache write and cache read tokens
+    private static final int[][] USAGES = {{10, 100, 0}, {5, 20, 100}};
+
+    public static void main(String[] args) throws Exception {
+        List<String> bodies = new ArrayList<>();
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            int[] usage;
+            synchronized (bodies) {
+                bodies.add(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+                usage = USAGES[Math.min(bodies.size(), USAGES.length) - 1];
+            }
+            byte[] response = ("{\"id\":\"msg_1\",\"type\":\"message\",\"role\":\"assistant\",\"model\":\"stand-in\","
+                    + "\"content\":[{\"type\":\"text\",\"text\":\"ok\"}],\"stop_reason\":\"end_turn\","
+                    + "\"usage\":{\"input_tokens\":" + usage[0] + ",\"output_tokens\":2,"
+                    + "\"cache_creation_input_tokens\":" + usage[1] + ",\"cache_read_input_tokens\":" + usage[2] + "}}")
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, response.length);
+            exchange.getResponseBody().write(response);
+            exchange.close();
+        });
+        server.start();
+        try {
+            AnthropicChatModel model = AnthropicChatModel.builder()
+                    .apiKey("stand-in")
+                    .modelName("stand-in")
+                    .baseUrl("http://127.0.0.1:" + server.getAddress().getPort() + "/v1")
+                    .maxRetries(0)
+                    .cacheSystemMessages(true)
+                    .httpClientBuilder(AnthropicPromptCache.httpClientBuilder())
+                    .listeners(List.of(AnthropicPromptCache.listener()))
+                    .build();
+
+            model.chat(SystemMessage.from("You are a developer"), UserMessage.from("one"));
+            model.chat(SystemMessage.from("You are a developer"), UserMessage.from("one"), AiMessage.from("two"), UserMessage.from("three"));
+
+            check(bodies.size() == 2, "expected 2 requests, got " + bodies.size());
+            for (String body : bodies) {
+                JsonNode json = objectMapper.readTree(body);
+                JsonNode messages = json.path("messages");
+                JsonNode lastBlock = lastBlock(messages);
+                check(lastBlock.path("cache_control").path("type").asText().equals("ephemeral"),
+                        "last block of the history is not marked: " + body);
+                check(messages.findValues("cache_control").size() == 1, "more than one breakpoint in the history: " + body);
+                check(json.path("system").findValues("cache_control").size() == 1, "system prompt is not marked: " + body);
+            }
+            System.out.println("OK breakpoint on the last block of each request");
+
+            checkMarkHistory();
+
+            String stats = AnthropicPromptCache.stats();
+            check(stats.startsWith("responses=2, uncachedInputTokens=15, cacheWriteTokens=120, cacheReadTokens=100, cacheReadRate="),
+                    "unexpected stats: " + stats);
+            // 100 read out of 15 + 120 + 100 input tokens
+            check(stats.endsWith(String.format("%.1f%%", 100.0 / 235 * 100)), "unexpected cache read rate: " + stats);
+            System.out.println("OK stats " + stats);
+        } finally {
+            server.stop(0);
+        }
+        // The model's HTTP client keeps non-daemon threads alive
+        System.exit(0);
+    }
+
+    private static void checkMarkHistory() throws Exception {
+        // Thinking blocks cannot carry a breakpoint, so the block before them is marked
+        JsonNode thinking = messages(AnthropicPromptCache.markHistory(request("/v1/messages",
+                "{\"messages\":[{\"role\":\"assistant\",\"content\":[{\"type\":\"text\",\"text\":\"a\"},"
+                        + "{\"type\":\"thinking\",\"thinking\":\"b\",\"signature\":\"c\"}]}]}")));
+        check(thinking.get(0).path("content").get(0).has("cache_control"), "text before a thinking block is not marked");
+        check(!thinking.get(0).path("content").get(1).has("cache_control"), "thinking block is marked");
+
+        // Plain string content is turned into a marked text block
+        JsonNode text = messages(AnthropicPromptCache.markHistory(request("/v1/messages",
+                "{\"messages\":[{\"role\":\"user\",\"content\":\"hello\"}]}")));
+        JsonNode block = text.get(0).path("content").get(0);
+        check(block.path("text").asText().equals("hello") && block.has("cache_control"), "string content is not marked: " + text);
+
+        // Other endpoints and unparseable bodies are sent unchanged
+        HttpRequest otherEndpoint = request("/v1/models", "{\"messages\":[{\"role\":\"user\",\"content\":\"hello\"}]}");
+        check(AnthropicPromptCache.markHistory(otherEndpoint) == otherEndpoint, "request to another endpoint was changed");
+        HttpRequest invalid = request("/v1/messages", "{not json");
+        check(AnthropicPromptCache.markHistory(invalid) == invalid, "unparseable request was changed");
+        System.out.println("OK markHistory block selection");
+    }
+
+    private static HttpRequest request(String path, String body) {
+        return HttpRequest.builder()
+                .method(HttpMethod.POST)
+                .url("http://127.0.0.1" + path)
+                .body(body)
+                .build();
+    }
+
+    private static JsonNode messages(HttpRequest request) throws Exception {
+        return objectMapper.readTree(request.body()).path("messages");
+    }
+
+    private static JsonNode lastBlock(JsonNode messages) {
+        JsonNode content = messages.get(messages.size() - 1).path("content");
+        return content.get(content.size() - 1);
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+}